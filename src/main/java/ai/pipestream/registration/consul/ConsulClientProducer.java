@@ -11,27 +11,58 @@ import org.jboss.logging.Logger;
 
 @ApplicationScoped
 public class ConsulClientProducer {
-    
+
     private static final Logger LOG = Logger.getLogger(ConsulClientProducer.class);
-    
+
     @Inject
     Vertx vertx;
-    
+
     @ConfigProperty(name = "pipeline.consul.host", defaultValue = "localhost")
     String consulHost;
-    
+
     @ConfigProperty(name = "pipeline.consul.port", defaultValue = "8500")
     int consulPort;
-    
+
+    /**
+     * Connections for one-shot calls; also caps the concurrency of discovery fan-outs
+     */
+    @ConfigProperty(name = "pipeline.consul.max-pool-size", defaultValue = "32")
+    int maxPoolSize;
+
+    /**
+     * Connections for blocking queries: one per service watched by the catalog, plus the
+     * catalog watch itself and one per service whose registrations are waiting for health
+     */
+    @ConfigProperty(name = "pipeline.consul.watch.max-pool-size", defaultValue = "256")
+    int watchMaxPoolSize;
+
     @Produces
     @ApplicationScoped
     public ConsulClient produceConsulClient() {
         LOG.infof("Creating Consul client for %s:%d", consulHost, consulPort);
-        
+
+        ConsulClientOptions options = new ConsulClientOptions()
+            .setHost(consulHost)
+            .setPort(consulPort)
+            .setMaxPoolSize(maxPoolSize);
+
+        return ConsulClient.create(vertx, options);
+    }
+
+    /**
+     * Client for long-polls, kept apart so they cannot hold every connection of the default client
+     */
+    @Produces
+    @ApplicationScoped
+    @ConsulWatchClient
+    public ConsulClient produceConsulWatchClient() {
+        LOG.infof("Creating Consul watch client for %s:%d (%d connections)", consulHost, consulPort, watchMaxPoolSize);
+
         ConsulClientOptions options = new ConsulClientOptions()
             .setHost(consulHost)
-            .setPort(consulPort);
-            
+            .setPort(consulPort)
+            .setMaxPoolSize(watchMaxPoolSize);
+
         return ConsulClient.create(vertx, options);
     }
-}
\ No newline at end of file
+}
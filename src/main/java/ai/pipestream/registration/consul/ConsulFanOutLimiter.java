@@ -0,0 +1,237 @@
+package ai.pipestream.registration.consul;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many one-shot Consul calls a fan-out keeps in flight.
+ * <p>
+ * The cap adapts AIMD-style: every call answered within the target latency raises it by
+ * {@code 1/limit} (about one per round of calls), while a slow or failed call cuts it by
+ * a quarter, at most once per target-latency window. Calls beyond the cap wait in a queue
+ * and start as earlier ones finish; nothing blocks a thread. Long-running blocking queries
+ * must not go through here, since they would hold a slot for the whole wait.
+ * <p>
+ * The cap never exceeds the default Consul client's connection pool: calls beyond it would
+ * only wait for a connection, and the limiter would be measuring that wait instead of Consul.
+ */
+@ApplicationScoped
+public class ConsulFanOutLimiter {
+
+    private static final Logger LOG = Logger.getLogger(ConsulFanOutLimiter.class);
+    private static final double DECREASE_FACTOR = 0.75;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "pipeline.discovery.consul.max-concurrency", defaultValue = "32")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "pipeline.discovery.consul.min-concurrency", defaultValue = "4")
+    int minConcurrency;
+
+    @ConfigProperty(name = "pipeline.discovery.consul.target-latency", defaultValue = "250ms")
+    Duration targetLatency;
+
+    @ConfigProperty(name = "pipeline.discovery.consul.adaptive", defaultValue = "true")
+    boolean adaptive;
+
+    @ConfigProperty(name = "pipeline.consul.max-pool-size", defaultValue = "32")
+    int clientPoolSize;
+
+    private final Queue<Task<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private double limit = -1;
+    private long lastDecreaseNanos;
+    private boolean decreasedBefore;
+
+    private Timer callLatency;
+    private DistributionSummary fanOutSize;
+
+    @PostConstruct
+    void registerMetrics() {
+        callLatency = Timer.builder("pipeline.discovery.consul.call.latency")
+            .description("Latency of Consul calls issued by discovery fan-outs")
+            .register(meterRegistry);
+        fanOutSize = DistributionSummary.builder("pipeline.discovery.consul.fanout.size")
+            .description("Number of Consul calls issued per discovery fan-out")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.consul.fanout.inflight", inflight, AtomicInteger::get)
+            .description("Consul fan-out calls currently in flight")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.consul.fanout.queued", pending, Queue::size)
+            .description("Consul fan-out calls waiting for a concurrency slot")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.consul.fanout.limit", this, ConsulFanOutLimiter::currentLimit)
+            .description("Current adaptive concurrency limit for Consul fan-outs")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Record that a fan-out of {@code calls} Consul requests is about to start
+     */
+    public void recordFanOut(int calls) {
+        if (fanOutSize != null) {
+            fanOutSize.record(calls);
+        }
+    }
+
+    /**
+     * Run {@code call} once a concurrency slot is free. The call is created lazily, so
+     * nothing reaches Consul until the slot is granted.
+     */
+    public <T> Uni<T> submit(Supplier<Uni<T>> call) {
+        return Uni.createFrom().emitter(emitter -> {
+            Task<T> task = new Task<>(call, emitter);
+            emitter.onTermination(() -> task.cancelled.set(true));
+            pending.add(task);
+            drain();
+        });
+    }
+
+    public synchronized int currentLimit() {
+        return (int) limitValue();
+    }
+
+    int inflight() {
+        return inflight.get();
+    }
+
+    int queued() {
+        return pending.size();
+    }
+
+    /**
+     * Start queued calls while slots are free. The work-in-progress counter keeps a single
+     * thread in the loop, so calls that complete synchronously do not recurse into it.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (!pending.isEmpty() && inflight.get() < currentLimit()) {
+                Task<?> task = pending.poll();
+                if (task == null) {
+                    break;
+                }
+                inflight.incrementAndGet();
+                task.start();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void release(long elapsedNanos, boolean success) {
+        inflight.decrementAndGet();
+        if (callLatency != null) {
+            callLatency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        if (adaptive) {
+            adjust(elapsedNanos, success);
+        }
+        drain();
+    }
+
+    /**
+     * Additive increase on healthy calls, multiplicative decrease on slow or failed ones
+     */
+    synchronized void adjust(long elapsedNanos, boolean success) {
+        double current = limitValue();
+        long now = System.nanoTime();
+        if (!success || elapsedNanos > targetLatency.toNanos()) {
+            if (decreasedBefore && now - lastDecreaseNanos < targetLatency.toNanos()) {
+                return;
+            }
+            decreasedBefore = true;
+            lastDecreaseNanos = now;
+            double reduced = Math.max(floor(), current * DECREASE_FACTOR);
+            if ((int) reduced < (int) current) {
+                LOG.debugf("Consul fan-out limit lowered to %d (call took %d ms, success=%s)",
+                    (int) reduced, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), success);
+            }
+            limit = reduced;
+        } else {
+            limit = Math.min(ceiling(), current + 1.0 / current);
+        }
+    }
+
+    private double limitValue() {
+        if (limit < 0) {
+            limit = ceiling();
+            if (ceiling() < maxConcurrency) {
+                LOG.infof("Consul fan-out limit capped at %d by pipeline.consul.max-pool-size", ceiling());
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Highest limit: the configured maximum, but no more than the client has connections
+     */
+    private int ceiling() {
+        return Math.max(1, Math.min(maxConcurrency, clientPoolSize));
+    }
+
+    private int floor() {
+        return Math.min(minConcurrency, ceiling());
+    }
+
+    /**
+     * One queued call and the subscriber waiting for it
+     */
+    private final class Task<T> {
+        final Supplier<Uni<T>> call;
+        final UniEmitter<? super T> emitter;
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Task(Supplier<Uni<T>> call, UniEmitter<? super T> emitter) {
+            this.call = call;
+            this.emitter = emitter;
+        }
+
+        void start() {
+            if (cancelled.get()) {
+                inflight.decrementAndGet();
+                return;
+            }
+            long started = System.nanoTime();
+            Uni<T> uni;
+            try {
+                uni = call.get();
+            } catch (RuntimeException e) {
+                release(System.nanoTime() - started, false);
+                emitter.fail(e);
+                return;
+            }
+            uni.subscribe().with(
+                item -> {
+                    release(System.nanoTime() - started, true);
+                    emitter.complete(item);
+                },
+                failure -> {
+                    release(System.nanoTime() - started, false);
+                    emitter.fail(failure);
+                });
+        }
+    }
+}
@@ -1,100 +1,223 @@
 package ai.pipestream.registration.consul;
 
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.ext.consul.BlockingQueryOptions;
+import io.vertx.ext.consul.ServiceEntry;
+import io.vertx.ext.consul.ServiceEntryList;
+import io.vertx.ext.consul.ServiceQueryOptions;
 import io.vertx.mutiny.ext.consul.ConsulClient;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Handles health check operations for services registered with Consul
+ * Handles health check operations for services registered with Consul.
+ * <p>
+ * Waiting uses Consul blocking queries on the service's passing-health index: each query
+ * returns as soon as the set of passing instances changes, so a newly registered instance
+ * is reported healthy within one round trip of Consul marking it passing, not at the next
+ * poll interval.
+ * <p>
+ * Waiters are coordinated per service name: however many instances of a service are waiting
+ * (say, during a rollout of hundreds of pods), one watch loop queries Consul for that name
+ * and completes every waiter whose instance shows up as passing. The loop stops when its
+ * last waiter is done, so Consul load follows the number of distinct services being waited on.
+ * The blocking queries run on the {@link ConsulWatchClient}, so waiting registrations never hold
+ * the connections that agent and registration calls need.
  */
 @ApplicationScoped
 public class ConsulHealthChecker {
-    
+
     private static final Logger LOG = Logger.getLogger(ConsulHealthChecker.class);
-    private static final int MAX_HEALTH_CHECK_ATTEMPTS = 10;
-    private static final int BASE_DELAY_SECONDS = 3;
-    private static final int MAX_DELAY_SECONDS = 10;
-    
+    private static final String BLOCKING_WAIT = "30s";
+
     @Inject
     ConsulClient consulClient;
-    
+
+    @Inject
+    @ConsulWatchClient
+    ConsulClient watchClient;
+
+    @ConfigProperty(name = "pipeline.registration.health.timeout", defaultValue = "60s")
+    Duration healthTimeout;
+
+    @ConfigProperty(name = "pipeline.registration.health.retry-delay", defaultValue = "1s")
+    Duration retryDelay;
+
+    private final Map<String, ServiceWatch> watches = new ConcurrentHashMap<>();
+
     /**
-     * Wait for a service to become healthy in Consul's view
-     * @param serviceId The full service ID (serviceName-host-port)
-     * @return Uni<Boolean> true if service becomes healthy, false if timeout
+     * Wait until Consul reports the instance {@code serviceId} of {@code serviceName} as passing
+     * @return Uni<Boolean> true once it passes, false if the health timeout elapses first
      */
-    public Uni<Boolean> waitForHealthy(String serviceId) {
-        String serviceName = extractServiceName(serviceId);
-        if (serviceName == null) {
-            LOG.errorf("Invalid serviceId format: %s", serviceId);
-            return Uni.createFrom().item(false);
-        }
-        
+    public Uni<Boolean> waitForHealthy(String serviceName, String serviceId) {
         LOG.debugf("Waiting for health check - serviceId: %s, serviceName: %s", serviceId, serviceName);
-        return checkHealthWithRetry(serviceName, serviceId, 0);
+        return Uni.createFrom().<Boolean>emitter(emitter -> {
+                Waiter waiter = new Waiter(serviceId, emitter);
+                emitter.onTermination(() -> leave(serviceName, waiter));
+                join(serviceName, waiter);
+            })
+            .ifNoItem().after(healthTimeout).recoverWithItem(() -> {
+                LOG.warnf("Service %s did not become healthy within %s", serviceId, healthTimeout);
+                return false;
+            });
     }
-    
-    private Uni<Boolean> checkHealthWithRetry(String serviceName, String serviceId, int attempt) {
-        if (attempt >= MAX_HEALTH_CHECK_ATTEMPTS) {
-            LOG.warnf("Service %s did not become healthy after %d attempts", serviceId, MAX_HEALTH_CHECK_ATTEMPTS);
-            return Uni.createFrom().item(false);
-        }
-        
+
+    /**
+     * Whether Consul currently reports the instance as passing, answered without blocking
+     */
+    public Uni<Boolean> isPassing(String serviceName, String serviceId) {
         return consulClient.healthServiceNodes(serviceName, true)
-            .onItem().transform(serviceEntries -> {
-                if (serviceEntries != null && serviceEntries.getList() != null) {
-                    boolean isHealthy = serviceEntries.getList().stream()
-                        .anyMatch(entry -> serviceId.equals(entry.getService().getId()));
-                    if (isHealthy) {
-                        LOG.infof("Service %s is now healthy in Consul", serviceId);
-                        return true;
+            .map(entries -> passingIds(entries).contains(serviceId))
+            .onFailure().recoverWithItem(error -> {
+                LOG.debugf("Could not check health of %s: %s", serviceId, error.getMessage());
+                return false;
+            });
+    }
+
+    /**
+     * Number of service names with an active watch loop
+     */
+    int activeWatches() {
+        return watches.size();
+    }
+
+    private void join(String serviceName, Waiter waiter) {
+        boolean[] created = new boolean[1];
+        ServiceWatch watch = watches.compute(serviceName, (name, existing) -> {
+            ServiceWatch target = existing;
+            if (target == null) {
+                target = new ServiceWatch(name);
+                created[0] = true;
+            }
+            target.waiters.add(waiter);
+            return target;
+        });
+        if (created[0]) {
+            poll(watch, 0);
+        } else if (watch.passing.contains(waiter.serviceId)) {
+            // Already passing in the watch's latest answer, which may not change again for a while
+            waiter.complete();
+        } else {
+            LOG.debugf("Service %s joined the health watch of %s (%d waiting)",
+                waiter.serviceId, serviceName, watch.waiters.size());
+        }
+    }
+
+    private void leave(String serviceName, Waiter waiter) {
+        ServiceWatch[] stopped = new ServiceWatch[1];
+        watches.computeIfPresent(serviceName, (name, watch) -> {
+            watch.waiters.remove(waiter);
+            if (watch.waiters.isEmpty()) {
+                stopped[0] = watch;
+                return null;
+            }
+            return watch;
+        });
+        if (stopped[0] != null) {
+            stopped[0].stop();
+        }
+    }
+
+    /**
+     * One blocking query from {@code index}; answers immediately on index 0, otherwise when
+     * the passing set changes or the wait runs out, then watches again from the new index
+     */
+    private void poll(ServiceWatch watch, long index) {
+        if (!watch.isCurrent()) {
+            return;
+        }
+        ServiceQueryOptions options = new ServiceQueryOptions()
+            .setBlockingOptions(new BlockingQueryOptions()
+                .setIndex(index)
+                .setWait(BLOCKING_WAIT));
+
+        watch.inflight = watchClient.healthServiceNodesWithOptions(watch.name, true, options)
+            .subscribe().with(
+                entries -> {
+                    watch.passing = passingIds(entries);
+                    for (Waiter waiter : watch.waiters) {
+                        if (watch.passing.contains(waiter.serviceId)) {
+                            LOG.infof("Service %s is now healthy in Consul", waiter.serviceId);
+                            waiter.complete();
+                        }
                     }
+                    long next = nextIndex(index, entries);
+                    LOG.debugf("Health watch of %s at index %d: %d passing, %d waiting",
+                        watch.name, next, watch.passing.size(), watch.waiters.size());
+                    poll(watch, next);
+                },
+                failure -> {
+                    LOG.warnf("Error checking health for %s: %s; retrying in %s",
+                        watch.name, failure.getMessage(), retryDelay);
+                    watch.inflight = Uni.createFrom().voidItem()
+                        .onItem().delayIt().by(retryDelay)
+                        .subscribe().with(ignored -> poll(watch, 0));
                 }
-                return false;
-            })
-            .onItem().transformToUni(healthy -> {
-                if (healthy) {
-                    return Uni.createFrom().item(true);
+            );
+    }
+
+    private static Set<String> passingIds(ServiceEntryList entries) {
+        Set<String> ids = new HashSet<>();
+        if (entries != null && entries.getList() != null) {
+            for (ServiceEntry entry : entries.getList()) {
+                if (entry.getService() != null) {
+                    ids.add(entry.getService().getId());
                 }
-                
-                long delaySec = Math.min(BASE_DELAY_SECONDS + attempt, MAX_DELAY_SECONDS);
-                LOG.debugf("Service %s not healthy yet; scheduling next check in %ds (attempt %d/%d)", 
-                    serviceId, delaySec, attempt + 1, MAX_HEALTH_CHECK_ATTEMPTS);
-                
-                return Uni.createFrom().item(false)
-                    .onItem().delayIt().by(Duration.ofSeconds(delaySec))
-                    .onItem().transformToUni(ignored -> checkHealthWithRetry(serviceName, serviceId, attempt + 1));
-            })
-            .onFailure().recoverWithUni(throwable -> {
-                long delaySec = Math.min(BASE_DELAY_SECONDS + attempt, MAX_DELAY_SECONDS);
-                LOG.warnf("Error checking health for %s: %s; retrying in %ds", 
-                    serviceId, throwable.getMessage(), delaySec);
-                
-                return Uni.createFrom().item(false)
-                    .onItem().delayIt().by(Duration.ofSeconds(delaySec))
-                    .onItem().transformToUni(ignored -> checkHealthWithRetry(serviceName, serviceId, attempt + 1));
-            });
+            }
+        }
+        return ids;
     }
-    
+
     /**
-     * Extract service name from serviceId (format: serviceName-host-port)
+     * Consul requires resetting to zero when the index goes backwards and never blocking on zero
      */
-    private String extractServiceName(String serviceId) {
-        int lastDash = serviceId.lastIndexOf('-');
-        if (lastDash == -1) {
-            return null;
+    private static long nextIndex(long previous, ServiceEntryList entries) {
+        long returned = entries != null ? entries.getIndex() : 0;
+        if (returned < previous) {
+            return 0;
+        }
+        return Math.max(1, returned);
+    }
+
+    /**
+     * The single watch loop of one service name and everyone waiting on it
+     */
+    private final class ServiceWatch {
+        final String name;
+        final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+        volatile Set<String> passing = Set.of();
+        volatile Cancellable inflight;
+
+        ServiceWatch(String name) {
+            this.name = name;
         }
-        
-        String withoutPort = serviceId.substring(0, lastDash);
-        int secondLastDash = withoutPort.lastIndexOf('-');
-        if (secondLastDash == -1) {
-            return null;
+
+        boolean isCurrent() {
+            return watches.get(name) == this;
+        }
+
+        void stop() {
+            Cancellable current = inflight;
+            if (current != null) {
+                current.cancel();
+            }
+            LOG.debugf("Health watch of %s stopped, no waiters left", name);
+        }
+    }
+
+    private record Waiter(String serviceId, UniEmitter<? super Boolean> emitter) {
+        void complete() {
+            emitter.complete(true);
         }
-        
-        return withoutPort.substring(0, secondLastDash);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package ai.pipestream.registration.consul;
+
+import jakarta.inject.Qualifier;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the Consul client reserved for blocking queries.
+ * <p>
+ * Every long-poll holds a pooled connection for its whole wait, so watches run on their own
+ * client and pool. Agent, registration and one-shot catalog calls use the default client and
+ * never queue behind them.
+ */
+@Qualifier
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.TYPE})
+public @interface ConsulWatchClient {
+}
@@ -0,0 +1,8 @@
+package ai.pipestream.registration.discovery;
+
+/**
+ * Journal entry describing how the snapshot published as {@code version} differs
+ * from the one before it.
+ */
+public record CatalogChange(long version, CatalogDelta services, CatalogDelta modules) {
+}
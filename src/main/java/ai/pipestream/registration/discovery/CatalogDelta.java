@@ -0,0 +1,50 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instances added, changed and removed between two versions of one catalog view
+ * (services or modules), plus the size of that view afterwards.
+ */
+public record CatalogDelta(
+        List<CatalogInstance> added,
+        List<CatalogInstance> changed,
+        List<CatalogInstance> removed,
+        int total) {
+
+    public static CatalogDelta between(List<CatalogInstance> previous, List<CatalogInstance> next) {
+        Map<String, CatalogInstance> before = new HashMap<>();
+        for (CatalogInstance instance : previous) {
+            before.put(instance.serviceId(), instance);
+        }
+
+        List<CatalogInstance> added = new ArrayList<>();
+        List<CatalogInstance> changed = new ArrayList<>();
+        Map<String, CatalogInstance> after = new HashMap<>();
+        for (CatalogInstance instance : next) {
+            after.put(instance.serviceId(), instance);
+            CatalogInstance old = before.get(instance.serviceId());
+            if (old == null) {
+                added.add(instance);
+            } else if (!old.equals(instance)) {
+                changed.add(instance);
+            }
+        }
+
+        List<CatalogInstance> removed = new ArrayList<>();
+        for (CatalogInstance instance : previous) {
+            if (!after.containsKey(instance.serviceId())) {
+                removed.add(instance);
+            }
+        }
+
+        return new CatalogDelta(List.copyOf(added), List.copyOf(changed), List.copyOf(removed), next.size());
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+}
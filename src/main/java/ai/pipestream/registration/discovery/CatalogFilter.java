@@ -0,0 +1,97 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A compiled discovery filter expression, for example
+ * {@code tag:grpc AND meta.version >= 2.1 AND name ^= "parser-"}.
+ * <p>
+ * Besides the per-instance predicate, a filter exposes the conditions that every match must
+ * satisfy at the service level (name and tags), so that callers reading Consul directly can
+ * skip whole services before fetching their instances. See {@link CatalogFilterParser} for
+ * the grammar.
+ */
+public final class CatalogFilter implements Predicate<CatalogInstance> {
+
+    /**
+     * Filter that matches every instance
+     */
+    public static final CatalogFilter ALL = new CatalogFilter("", instance -> true, List.of(), List.of(), List.of());
+
+    private final String expression;
+    private final Predicate<CatalogInstance> predicate;
+    private final List<String> requiredNames;
+    private final List<String> requiredNamePrefixes;
+    private final List<String> requiredTags;
+
+    CatalogFilter(String expression, Predicate<CatalogInstance> predicate,
+                  List<String> requiredNames, List<String> requiredNamePrefixes, List<String> requiredTags) {
+        this.expression = expression;
+        this.predicate = predicate;
+        this.requiredNames = List.copyOf(requiredNames);
+        this.requiredNamePrefixes = List.copyOf(requiredNamePrefixes);
+        this.requiredTags = List.copyOf(requiredTags);
+    }
+
+    /**
+     * Compile an expression without caching; prefer {@link CatalogFilterCache#compile(String)}
+     *
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static CatalogFilter parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return ALL;
+        }
+        return CatalogFilterParser.parse(expression);
+    }
+
+    @Override
+    public boolean test(CatalogInstance instance) {
+        return predicate.test(instance);
+    }
+
+    public boolean matchesAll() {
+        return this == ALL;
+    }
+
+    /**
+     * Whether any instance of a service with this name and these catalog-level tags could
+     * match. Conservative: {@code true} unless a top-level condition rules the service out.
+     */
+    public boolean mayMatchService(String serviceName, List<String> serviceTags) {
+        for (String name : requiredNames) {
+            if (!name.equals(serviceName)) {
+                return false;
+            }
+        }
+        for (String prefix : requiredNamePrefixes) {
+            if (!serviceName.startsWith(prefix)) {
+                return false;
+            }
+        }
+        if (!requiredTags.isEmpty()) {
+            return serviceTags != null && serviceTags.containsAll(requiredTags);
+        }
+        return true;
+    }
+
+    /**
+     * Apply the filter to a list, returning the list itself when the filter matches everything
+     */
+    public List<CatalogInstance> apply(List<CatalogInstance> instances) {
+        if (matchesAll()) {
+            return instances;
+        }
+        return instances.stream().filter(predicate).toList();
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return matchesAll() ? "<all>" : expression;
+    }
+}
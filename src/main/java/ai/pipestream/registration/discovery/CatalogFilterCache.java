@@ -0,0 +1,45 @@
+package ai.pipestream.registration.discovery;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles filter expressions once and keeps the most recently used ones, since clients
+ * tend to send the same few expressions on every call
+ */
+@ApplicationScoped
+public class CatalogFilterCache {
+
+    @ConfigProperty(name = "pipeline.discovery.filter.cache-size", defaultValue = "256")
+    int cacheSize;
+
+    private final Map<String, CatalogFilter> compiled = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CatalogFilter> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * @throws IllegalArgumentException if the expression is not valid; invalid expressions are not cached
+     */
+    public CatalogFilter compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return CatalogFilter.ALL;
+        }
+        synchronized (compiled) {
+            CatalogFilter filter = compiled.get(expression);
+            if (filter != null) {
+                return filter;
+            }
+        }
+        CatalogFilter filter = CatalogFilter.parse(expression);
+        synchronized (compiled) {
+            compiled.put(expression, filter);
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,375 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Recursive-descent parser for discovery filter expressions.
+ * <pre>
+ * expr       := and ( OR and )*
+ * and        := unary ( AND unary )*
+ * unary      := NOT unary | '(' expr ')' | condition
+ * condition  := field op value | field ':' value
+ * field      := name | id | host | port | version | tag | capability | meta.&lt;key&gt;
+ * op         := == | = | != | ^= (prefix) | $= (suffix) | ~= (contains) | &gt; | &gt;= | &lt; | &lt;=
+ * value      := "quoted string" | bare-word
+ * </pre>
+ * Keywords are case-insensitive; {@code &&}, {@code ||} and {@code !} are accepted as well.
+ * Ordering operators compare dotted numbers numerically, so {@code 2.10 > 2.9}. On the
+ * multi-valued fields {@code tag} and {@code capability}, {@code ==} means "has" and
+ * {@code !=} means "does not have". A missing metadata key only satisfies {@code !=}.
+ */
+final class CatalogFilterParser {
+
+    static final int MAX_EXPRESSION_LENGTH = 4096;
+
+    private static final String OPERATOR_CHARS = "=!^$~<>";
+
+    private final String source;
+    private final List<Token> tokens;
+    private int position;
+
+    private final List<String> requiredNames = new ArrayList<>();
+    private final List<String> requiredNamePrefixes = new ArrayList<>();
+    private final List<String> requiredTags = new ArrayList<>();
+
+    private CatalogFilterParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    static CatalogFilter parse(String expression) {
+        if (expression.length() > MAX_EXPRESSION_LENGTH) {
+            throw new IllegalArgumentException("Filter expression longer than " + MAX_EXPRESSION_LENGTH + " characters");
+        }
+        CatalogFilterParser parser = new CatalogFilterParser(expression);
+        Predicate<CatalogInstance> predicate = parser.parseOr(true);
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected '" + parser.tokens.get(parser.position).text + "'");
+        }
+        return new CatalogFilter(expression.trim(), predicate,
+            parser.requiredNames, parser.requiredNamePrefixes, parser.requiredTags);
+    }
+
+    /**
+     * @param topLevel whether this expression must hold for every match, so its conditions
+     *                 may be used to prune whole services
+     */
+    private Predicate<CatalogInstance> parseOr(boolean topLevel) {
+        int start = position;
+        int names = requiredNames.size();
+        int prefixes = requiredNamePrefixes.size();
+        int tags = requiredTags.size();
+        Predicate<CatalogInstance> first = parseAnd(topLevel);
+        if (!peekKeyword("OR", "||")) {
+            return first;
+        }
+        // A disjunction does not guarantee any single branch, so re-parse without pruning hints
+        if (topLevel) {
+            position = start;
+            requiredNames.subList(names, requiredNames.size()).clear();
+            requiredNamePrefixes.subList(prefixes, requiredNamePrefixes.size()).clear();
+            requiredTags.subList(tags, requiredTags.size()).clear();
+            return parseOr(false);
+        }
+        Predicate<CatalogInstance> result = first;
+        while (acceptKeyword("OR", "||")) {
+            result = result.or(parseAnd(false));
+        }
+        return result;
+    }
+
+    private Predicate<CatalogInstance> parseAnd(boolean topLevel) {
+        Predicate<CatalogInstance> result = parseUnary(topLevel);
+        while (acceptKeyword("AND", "&&")) {
+            result = result.and(parseUnary(topLevel));
+        }
+        return result;
+    }
+
+    private Predicate<CatalogInstance> parseUnary(boolean topLevel) {
+        if (acceptKeyword("NOT", "!")) {
+            return parseUnary(false).negate();
+        }
+        if (accept(TokenType.LPAREN)) {
+            Predicate<CatalogInstance> inner = parseOr(topLevel);
+            expect(TokenType.RPAREN, "Expected ')'");
+            return inner;
+        }
+        return parseCondition(topLevel);
+    }
+
+    private Predicate<CatalogInstance> parseCondition(boolean topLevel) {
+        Token fieldToken = expect(TokenType.WORD, "Expected a field name");
+        String field = fieldToken.text;
+        String op;
+        String value;
+
+        int colon = field.indexOf(':');
+        if (colon > 0) {
+            // Shorthand such as tag:grpc or name:parser
+            value = field.substring(colon + 1);
+            field = field.substring(0, colon);
+            op = "==";
+            if (value.isEmpty()) {
+                value = expectValue();
+            }
+        } else {
+            op = expect(TokenType.OPERATOR, "Expected an operator after '" + field + "'").text;
+            value = expectValue();
+        }
+
+        Predicate<CatalogInstance> condition = condition(field.toLowerCase(Locale.ROOT), field, op, value);
+        if (topLevel) {
+            recordPruningHint(field.toLowerCase(Locale.ROOT), op, value);
+        }
+        return condition;
+    }
+
+    private Predicate<CatalogInstance> condition(String field, String originalField, String op, String value) {
+        return switch (field) {
+            case "name", "service" -> scalar(CatalogInstance::serviceName, op, value);
+            case "id" -> scalar(CatalogInstance::serviceId, op, value);
+            case "host" -> scalar(CatalogInstance::host, op, value);
+            case "port" -> scalar(instance -> Integer.toString(instance.port()), op, value);
+            case "version" -> scalar(CatalogInstance::version, op, value);
+            case "tag" -> multi(CatalogInstance::tags, op, value);
+            case "capability" -> multi(CatalogInstance::capabilities, op, value);
+            default -> {
+                if (field.startsWith("meta.") && field.length() > 5) {
+                    // Metadata keys keep their original case
+                    String key = originalField.substring(5);
+                    yield scalar(instance -> instance.metadata().get(key), op, value);
+                }
+                throw error("Unknown field '" + originalField + "'");
+            }
+        };
+    }
+
+    private Predicate<CatalogInstance> scalar(Function<CatalogInstance, String> getter, String op, String value) {
+        Predicate<String> test = valueTest(op, value);
+        boolean matchesMissing = "!=".equals(op);
+        return instance -> {
+            String actual = getter.apply(instance);
+            return actual == null ? matchesMissing : test.test(actual);
+        };
+    }
+
+    private Predicate<CatalogInstance> multi(Function<CatalogInstance, List<String>> getter, String op, String value) {
+        if ("!=".equals(op)) {
+            return instance -> !getter.apply(instance).contains(value);
+        }
+        Predicate<String> test = valueTest(op, value);
+        return instance -> {
+            for (String actual : getter.apply(instance)) {
+                if (test.test(actual)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private Predicate<String> valueTest(String op, String value) {
+        return switch (op) {
+            case "==", "=" -> value::equals;
+            case "!=" -> actual -> !value.equals(actual);
+            case "^=" -> actual -> actual.startsWith(value);
+            case "$=" -> actual -> actual.endsWith(value);
+            case "~=" -> actual -> actual.contains(value);
+            case ">" -> actual -> compareVersions(actual, value) > 0;
+            case ">=" -> actual -> compareVersions(actual, value) >= 0;
+            case "<" -> actual -> compareVersions(actual, value) < 0;
+            case "<=" -> actual -> compareVersions(actual, value) <= 0;
+            default -> throw error("Unknown operator '" + op + "'");
+        };
+    }
+
+    private void recordPruningHint(String field, String op, String value) {
+        boolean equality = "==".equals(op) || "=".equals(op);
+        switch (field) {
+            case "name", "service" -> {
+                if (equality) {
+                    requiredNames.add(value);
+                } else if ("^=".equals(op)) {
+                    requiredNamePrefixes.add(value);
+                }
+            }
+            case "tag" -> {
+                if (equality) {
+                    requiredTags.add(value);
+                }
+            }
+            case "capability" -> {
+                if (equality) {
+                    requiredTags.add(CatalogInstance.CAPABILITY_PREFIX + value);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Compare dotted versions segment by segment: digit runs numerically, everything else
+     * lexically, so {@code 2.10 > 2.9} and {@code 1.0.1 > 1.0}
+     */
+    static int compareVersions(String left, String right) {
+        List<String> a = segments(left);
+        List<String> b = segments(right);
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            String x = a.get(i);
+            String y = b.get(i);
+            boolean xNumeric = Character.isDigit(x.charAt(0));
+            boolean yNumeric = Character.isDigit(y.charAt(0));
+            int result;
+            if (xNumeric && yNumeric) {
+                String xs = stripLeadingZeros(x);
+                String ys = stripLeadingZeros(y);
+                result = xs.length() != ys.length() ? Integer.compare(xs.length(), ys.length()) : xs.compareTo(ys);
+            } else {
+                result = x.compareTo(y);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    private static List<String> segments(String value) {
+        List<String> segments = new ArrayList<>();
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean digits = Character.isDigit(c);
+            while (i < value.length() && Character.isLetterOrDigit(value.charAt(i))
+                    && Character.isDigit(value.charAt(i)) == digits) {
+                i++;
+            }
+            segments.add(value.substring(start, i));
+        }
+        return segments;
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') {
+            i++;
+        }
+        return digits.substring(i);
+    }
+
+    private String expectValue() {
+        if (position < tokens.size()) {
+            Token token = tokens.get(position);
+            if (token.type == TokenType.WORD || token.type == TokenType.STRING) {
+                position++;
+                return token.text;
+            }
+        }
+        throw error("Expected a value");
+    }
+
+    private boolean peekKeyword(String keyword, String symbol) {
+        if (position >= tokens.size()) {
+            return false;
+        }
+        Token token = tokens.get(position);
+        return (token.type == TokenType.WORD && token.text.equalsIgnoreCase(keyword))
+            || (token.type == TokenType.SYMBOL && token.text.equals(symbol));
+    }
+
+    private boolean acceptKeyword(String keyword, String symbol) {
+        if (peekKeyword(keyword, symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean accept(TokenType type) {
+        if (position < tokens.size() && tokens.get(position).type == type) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private Token expect(TokenType type, String message) {
+        if (position < tokens.size() && tokens.get(position).type == type) {
+            return tokens.get(position++);
+        }
+        throw error(message);
+    }
+
+    private IllegalArgumentException error(String message) {
+        int offset = position < tokens.size() ? tokens.get(position).offset : source.length();
+        return new IllegalArgumentException(message + " at position " + offset + " in filter: " + source);
+    }
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LPAREN, "(", i++));
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RPAREN, ")", i++));
+            } else if (c == '"' || c == '\'') {
+                int start = i++;
+                StringBuilder value = new StringBuilder();
+                while (i < source.length() && source.charAt(i) != c) {
+                    if (source.charAt(i) == '\\' && i + 1 < source.length()) {
+                        i++;
+                    }
+                    value.append(source.charAt(i++));
+                }
+                if (i >= source.length()) {
+                    throw new IllegalArgumentException("Unterminated string at position " + start + " in filter: " + source);
+                }
+                i++;
+                tokens.add(new Token(TokenType.STRING, value.toString(), start));
+            } else if (source.startsWith("&&", i) || source.startsWith("||", i)) {
+                tokens.add(new Token(TokenType.SYMBOL, source.substring(i, i + 2), i));
+                i += 2;
+            } else if (c == '!' && !source.startsWith("!=", i)) {
+                tokens.add(new Token(TokenType.SYMBOL, "!", i++));
+            } else if (OPERATOR_CHARS.indexOf(c) >= 0) {
+                int start = i;
+                while (i < source.length() && OPERATOR_CHARS.indexOf(source.charAt(i)) >= 0) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.OPERATOR, source.substring(start, i), start));
+            } else {
+                int start = i;
+                while (i < source.length() && !Character.isWhitespace(source.charAt(i))
+                        && "()\"'".indexOf(source.charAt(i)) < 0
+                        && OPERATOR_CHARS.indexOf(source.charAt(i)) < 0
+                        && !source.startsWith("&&", i) && !source.startsWith("||", i)) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.WORD, source.substring(start, i), start));
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType {
+        WORD, STRING, OPERATOR, SYMBOL, LPAREN, RPAREN
+    }
+
+    private record Token(TokenType type, String text, int offset) {
+    }
+}
@@ -0,0 +1,83 @@
+package ai.pipestream.registration.discovery;
+
+import io.vertx.ext.consul.Service;
+import io.vertx.ext.consul.ServiceEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of a single healthy service instance as reported by Consul.
+ * Tags and capabilities are split once when the instance enters the catalog so
+ * that discovery calls never re-parse the raw Consul tag list.
+ */
+public record CatalogInstance(
+        String serviceId,
+        String serviceName,
+        String host,
+        int port,
+        List<String> tags,
+        List<String> capabilities,
+        Map<String, String> metadata,
+        String version,
+        boolean module) {
+
+    public static final String CAPABILITY_PREFIX = "capability:";
+    public static final String MODULE_TAG = "module";
+    /**
+     * Service meta key holding the SHA-256 of a module's JSON config schema
+     */
+    public static final String SCHEMA_HASH_METADATA_KEY = "json-config-schema-hash";
+    /**
+     * Service meta key that older registrations used for the whole schema; dropped on read
+     */
+    public static final String SCHEMA_METADATA_KEY = "json-config-schema";
+
+    public CatalogInstance {
+        tags = List.copyOf(tags);
+        capabilities = List.copyOf(capabilities);
+        metadata = Map.copyOf(metadata);
+    }
+
+    /**
+     * Convert a Consul health entry into a catalog instance
+     */
+    public static CatalogInstance from(ServiceEntry entry) {
+        Service service = entry.getService();
+
+        List<String> rawTags = service.getTags() != null ? service.getTags() : List.of();
+        List<String> capabilities = new ArrayList<>();
+        for (String tag : rawTags) {
+            if (tag.startsWith(CAPABILITY_PREFIX)) {
+                capabilities.add(tag.substring(CAPABILITY_PREFIX.length()));
+            }
+        }
+
+        Map<String, String> meta = service.getMeta() != null ? service.getMeta() : Map.of();
+        if (meta.containsKey(SCHEMA_METADATA_KEY)) {
+            // Registered before schemas left Consul; the schema is served by getModuleSchema
+            meta = new HashMap<>(meta);
+            meta.remove(SCHEMA_METADATA_KEY);
+        }
+
+        // Consul leaves the service address empty when it inherits the node address
+        String host = service.getAddress();
+        if ((host == null || host.isEmpty()) && entry.getNode() != null) {
+            host = entry.getNode().getAddress();
+        }
+
+        return new CatalogInstance(
+            service.getId(),
+            service.getName(),
+            host != null ? host : "",
+            service.getPort(),
+            rawTags,
+            capabilities,
+            meta,
+            meta.get("version"),
+            rawTags.contains(MODULE_TAG)
+        );
+    }
+}
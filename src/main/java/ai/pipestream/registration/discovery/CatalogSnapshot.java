@@ -0,0 +1,147 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, process-wide picture of every healthy instance in the Consul catalog.
+ * A new snapshot is published whenever Consul reports a change; readers never lock.
+ */
+public final class CatalogSnapshot {
+
+    private static final Comparator<CatalogInstance> BY_ID = Comparator.comparing(CatalogInstance::serviceId);
+
+    private final long version;
+    private final long consulIndex;
+    private final long builtAtMillis;
+    private final Map<String, List<CatalogInstance>> instancesByName;
+    private final Map<String, InstanceIndex> indexesByName;
+    private final Map<String, CatalogInstance> instancesById;
+    private final Map<String, Locality> topologyByHost;
+    private final List<CatalogInstance> services;
+    private final List<CatalogInstance> modules;
+
+    private CatalogSnapshot(long version, long consulIndex, long builtAtMillis,
+                            Map<String, List<CatalogInstance>> instancesByName) {
+        this.version = version;
+        this.consulIndex = consulIndex;
+        this.builtAtMillis = builtAtMillis;
+        this.instancesByName = instancesByName;
+
+        Map<String, InstanceIndex> indexes = new HashMap<>();
+        Map<String, CatalogInstance> byId = new HashMap<>();
+        Map<String, Locality> topology = new HashMap<>();
+        List<CatalogInstance> serviceList = new ArrayList<>();
+        List<CatalogInstance> moduleList = new ArrayList<>();
+        for (Map.Entry<String, List<CatalogInstance>> entry : instancesByName.entrySet()) {
+            List<CatalogInstance> instances = entry.getValue();
+            indexes.put(entry.getKey(), InstanceIndex.of(instances));
+            for (CatalogInstance instance : instances) {
+                byId.put(instance.serviceId(), instance);
+                Locality locality = Locality.of(instance);
+                if (locality.host() != null && (locality.zone() != null || locality.rack() != null)) {
+                    topology.putIfAbsent(locality.host(), locality);
+                }
+                if (instance.module()) {
+                    moduleList.add(instance);
+                } else {
+                    serviceList.add(instance);
+                }
+            }
+        }
+        this.indexesByName = indexes;
+        this.instancesById = byId;
+        this.topologyByHost = topology;
+        this.services = Collections.unmodifiableList(serviceList);
+        this.modules = Collections.unmodifiableList(moduleList);
+    }
+
+    /**
+     * Build a snapshot from the per-service instance lists. Services and instances are
+     * ordered by name and ID so that list responses are stable between versions.
+     */
+    public static CatalogSnapshot of(long version, long consulIndex, Map<String, List<CatalogInstance>> instancesByName) {
+        Map<String, List<CatalogInstance>> ordered = new LinkedHashMap<>();
+        new TreeMap<>(instancesByName).forEach((name, instances) -> {
+            List<CatalogInstance> sorted = new ArrayList<>(instances);
+            sorted.sort(BY_ID);
+            ordered.put(name, List.copyOf(sorted));
+        });
+        return new CatalogSnapshot(version, consulIndex, System.currentTimeMillis(),
+            Collections.unmodifiableMap(ordered));
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long consulIndex() {
+        return consulIndex;
+    }
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    public long ageMillis() {
+        return System.currentTimeMillis() - builtAtMillis;
+    }
+
+    /**
+     * Healthy instances of the given service name, or an empty list if unknown
+     */
+    public List<CatalogInstance> instances(String serviceName) {
+        return instancesByName.getOrDefault(serviceName, List.of());
+    }
+
+    /**
+     * Tag and capability index over {@link #instances(String)}, built once per snapshot
+     */
+    public InstanceIndex index(String serviceName) {
+        return indexesByName.getOrDefault(serviceName, InstanceIndex.empty());
+    }
+
+    /**
+     * The healthy instance with this Consul service ID, or {@code null}
+     */
+    public CatalogInstance instance(String serviceId) {
+        return instancesById.get(serviceId);
+    }
+
+    /**
+     * Locality of a caller at {@code address}. Callers that are themselves registered inherit
+     * the zone and rack their own instances declare on that host.
+     */
+    public Locality locate(String address) {
+        Locality caller = Locality.ofAddress(address);
+        return caller.host() != null ? caller.withTopologyOf(topologyByHost.get(caller.host())) : caller;
+    }
+
+    public Map<String, List<CatalogInstance>> instancesByName() {
+        return instancesByName;
+    }
+
+    /**
+     * All healthy instances that are not tagged as modules
+     */
+    public List<CatalogInstance> services() {
+        return services;
+    }
+
+    /**
+     * All healthy instances tagged as modules
+     */
+    public List<CatalogInstance> modules() {
+        return modules;
+    }
+
+    public int size() {
+        return services.size() + modules.size();
+    }
+}
@@ -0,0 +1,410 @@
+package ai.pipestream.registration.discovery;
+
+import ai.pipestream.registration.consul.ConsulWatchClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.ext.consul.BlockingQueryOptions;
+import io.vertx.ext.consul.Service;
+import io.vertx.ext.consul.ServiceEntry;
+import io.vertx.ext.consul.ServiceEntryList;
+import io.vertx.ext.consul.ServiceList;
+import io.vertx.ext.consul.ServiceQueryOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.ext.consul.ConsulClient;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps an in-memory {@link CatalogSnapshot} current using Consul blocking queries.
+ * <p>
+ * One long-poll watches the catalog service list and one long-poll per service watches
+ * its passing instances. Every change rebuilds the snapshot off the request path, so
+ * discovery calls read from memory instead of fanning out to Consul. Each published
+ * snapshot is also broadcast to {@link #changes()} subscribers. The long-polls run on the
+ * {@link ConsulWatchClient} so that each holds its own connection without starving other
+ * Consul calls; its pool must have room for one connection per service.
+ * <p>
+ * Versions are seeded from the wall clock at startup and increase by one per published
+ * snapshot, so they keep increasing across restarts. A bounded journal of the deltas
+ * between consecutive versions lets reconnecting watchers catch up without a full list.
+ */
+@ApplicationScoped
+public class CatalogSnapshotEngine {
+
+    private static final Logger LOG = Logger.getLogger(CatalogSnapshotEngine.class);
+
+    @Inject
+    @ConsulWatchClient
+    ConsulClient consulClient;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "pipeline.discovery.catalog.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "pipeline.discovery.catalog.wait", defaultValue = "55s")
+    String blockingWait;
+
+    @ConfigProperty(name = "pipeline.discovery.catalog.retry-delay", defaultValue = "2s")
+    Duration retryDelay;
+
+    @ConfigProperty(name = "pipeline.discovery.catalog.journal-size", defaultValue = "256")
+    int journalSize;
+
+    @ConfigProperty(name = "pipeline.consul.watch.max-pool-size", defaultValue = "256")
+    int watchPoolSize;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    private final BroadcastProcessor<CatalogSnapshot> changes = BroadcastProcessor.create();
+    private final Map<String, ServiceWatch> watches = new ConcurrentHashMap<>();
+    private final ArrayDeque<CatalogChange> journal = new ArrayDeque<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile boolean running;
+    private volatile boolean catalogSeen;
+    private boolean poolWarned;
+    private volatile long catalogIndex;
+    private volatile long lastContactMillis;
+    private volatile Cancellable catalogPoll;
+    private long nextVersion = System.currentTimeMillis();
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!enabled) {
+            LOG.info("Catalog snapshot engine disabled; discovery will query Consul directly");
+            return;
+        }
+        registerMetrics();
+        running = true;
+        LOG.infof("Starting catalog snapshot engine (blocking wait %s)", blockingWait);
+        pollCatalog(0);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        Cancellable poll = catalogPoll;
+        if (poll != null) {
+            poll.cancel();
+        }
+        watches.values().forEach(ServiceWatch::cancel);
+        watches.clear();
+        changes.onComplete();
+    }
+
+    /**
+     * The current snapshot, present once every service in the catalog has been loaded
+     */
+    public Optional<CatalogSnapshot> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * When Consul last answered a catalog or health watch. The snapshot stays servable
+     * through Consul outages; this tells readers how far behind it may be.
+     */
+    public long lastContactMillis() {
+        return lastContactMillis;
+    }
+
+    public boolean isReady() {
+        return current.get() != null;
+    }
+    
+    /**
+     * Whether snapshots are maintained at all; when disabled, {@link #changes()} never emits
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hot stream of every newly published snapshot. Subscribers only see snapshots
+     * published after they subscribe; use {@link #current()} for the present state.
+     */
+    public Multi<CatalogSnapshot> changes() {
+        return changes;
+    }
+
+    /**
+     * Changes published after {@code version}, oldest first. Empty when that version is
+     * unknown to this process or has already left the journal, in which case the caller
+     * must start over from a full snapshot.
+     */
+    public synchronized Optional<List<CatalogChange>> changesSince(long version) {
+        CatalogSnapshot snapshot = current.get();
+        if (snapshot == null || version > snapshot.version()) {
+            return Optional.empty();
+        }
+        if (version == snapshot.version()) {
+            return Optional.of(List.of());
+        }
+        CatalogChange oldest = journal.peekFirst();
+        if (oldest == null || version < oldest.version() - 1) {
+            return Optional.empty();
+        }
+        List<CatalogChange> missed = new ArrayList<>();
+        for (CatalogChange change : journal) {
+            if (change.version() > version) {
+                missed.add(change);
+            }
+        }
+        return Optional.of(missed);
+    }
+
+    private void pollCatalog(long index) {
+        if (!running) {
+            return;
+        }
+        catalogPoll = consulClient.catalogServicesWithOptions(blockingOptions(index))
+            .subscribe().with(
+                services -> {
+                    lastContactMillis = System.currentTimeMillis();
+                    long next = nextIndex(index, services.getIndex());
+                    if (next != index || !catalogSeen) {
+                        catalogIndex = services.getIndex();
+                        reconcileWatches(services);
+                    }
+                    pollCatalog(next);
+                },
+                failure -> {
+                    LOG.warnf("Catalog watch failed (index %d): %s; retrying in %s",
+                        index, failure.getMessage(), retryDelay);
+                    vertx.setTimer(retryDelay.toMillis(), id -> pollCatalog(index));
+                }
+            );
+    }
+
+    private void reconcileWatches(ServiceList services) {
+        Set<String> names = new HashSet<>();
+        if (services != null && services.getList() != null) {
+            for (Service service : services.getList()) {
+                names.add(service.getName());
+            }
+        }
+
+        for (String name : names) {
+            watches.computeIfAbsent(name, n -> {
+                ServiceWatch watch = new ServiceWatch(n);
+                LOG.debugf("Watching health of service %s", n);
+                vertx.runOnContext(() -> pollService(watch, 0));
+                return watch;
+            });
+        }
+
+        List<String> removed = new ArrayList<>();
+        watches.keySet().forEach(name -> {
+            if (!names.contains(name)) {
+                removed.add(name);
+            }
+        });
+        for (String name : removed) {
+            ServiceWatch watch = watches.remove(name);
+            if (watch != null) {
+                LOG.debugf("Service %s left the catalog", name);
+                watch.cancel();
+            }
+        }
+
+        warnIfPoolTooSmall();
+        catalogSeen = true;
+        scheduleRebuild();
+    }
+
+    /**
+     * Watches beyond the pool size wait for a connection until another long-poll returns
+     */
+    private void warnIfPoolTooSmall() {
+        int needed = watches.size() + 1;
+        if (needed > watchPoolSize && !poolWarned) {
+            LOG.warnf("Catalog needs %d concurrent Consul watches but pipeline.consul.watch.max-pool-size is %d; "
+                + "some services will only be refreshed as other watches return", needed, watchPoolSize);
+        }
+        poolWarned = needed > watchPoolSize;
+    }
+
+    private void pollService(ServiceWatch watch, long index) {
+        if (!running || watches.get(watch.name) != watch) {
+            return;
+        }
+        ServiceQueryOptions options = new ServiceQueryOptions()
+            .setBlockingOptions(blockingOptions(index));
+
+        watch.inflight = consulClient.healthServiceNodesWithOptions(watch.name, true, options)
+            .subscribe().with(
+                entries -> {
+                    lastContactMillis = System.currentTimeMillis();
+                    long next = nextIndex(index, entries.getIndex());
+                    if (next != index || watch.instances == null) {
+                        watch.index = entries.getIndex();
+                        watch.instances = toInstances(entries);
+                        scheduleRebuild();
+                    }
+                    pollService(watch, next);
+                },
+                failure -> {
+                    LOG.debugf("Health watch for %s failed (index %d): %s; retrying in %s",
+                        watch.name, index, failure.getMessage(), retryDelay);
+                    vertx.setTimer(retryDelay.toMillis(), id -> pollService(watch, index));
+                }
+            );
+    }
+
+    private List<CatalogInstance> toInstances(ServiceEntryList entries) {
+        if (entries == null || entries.getList() == null) {
+            return List.of();
+        }
+        List<CatalogInstance> instances = new ArrayList<>(entries.getList().size());
+        for (ServiceEntry entry : entries.getList()) {
+            instances.add(CatalogInstance.from(entry));
+        }
+        return instances;
+    }
+
+    /**
+     * Coalesce bursts of watch responses into a single rebuild on the event loop
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            vertx.runOnContext(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private synchronized void rebuild() {
+        if (!running || !catalogSeen) {
+            return;
+        }
+
+        CatalogSnapshot previous = current.get();
+        Map<String, List<CatalogInstance>> byName = new HashMap<>();
+        long maxIndex = catalogIndex;
+        for (ServiceWatch watch : watches.values()) {
+            List<CatalogInstance> instances = watch.instances;
+            if (instances == null) {
+                if (previous == null) {
+                    // Initial load still in progress; publish only a complete catalog
+                    return;
+                }
+                continue;
+            }
+            if (!instances.isEmpty()) {
+                byName.put(watch.name, instances);
+            }
+            maxIndex = Math.max(maxIndex, watch.index);
+        }
+
+        CatalogSnapshot candidate = CatalogSnapshot.of(nextVersion, maxIndex, byName);
+        if (previous != null && previous.instancesByName().equals(candidate.instancesByName())) {
+            return;
+        }
+
+        nextVersion++;
+        if (previous != null) {
+            journal.addLast(new CatalogChange(candidate.version(),
+                CatalogDelta.between(previous.services(), candidate.services()),
+                CatalogDelta.between(previous.modules(), candidate.modules())));
+            while (journal.size() > journalSize) {
+                journal.removeFirst();
+            }
+        }
+        current.set(candidate);
+        changes.onNext(candidate);
+        if (previous == null) {
+            LOG.infof("Catalog snapshot ready: %d services, %d modules (consul index %d)",
+                candidate.services().size(), candidate.modules().size(), maxIndex);
+        } else {
+            LOG.debugf("Catalog snapshot v%d: %d services, %d modules (consul index %d)",
+                candidate.version(), candidate.services().size(), candidate.modules().size(), maxIndex);
+        }
+    }
+
+    private BlockingQueryOptions blockingOptions(long index) {
+        return new BlockingQueryOptions()
+            .setIndex(index)
+            .setWait(blockingWait);
+    }
+
+    /**
+     * Consul requires resetting to zero when the index goes backwards and never blocking on zero
+     */
+    private static long nextIndex(long previous, long returned) {
+        if (returned < previous) {
+            return 0;
+        }
+        return Math.max(1, returned);
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("pipeline.discovery.catalog.consul.index", current,
+                ref -> ref.get() != null ? ref.get().consulIndex() : 0)
+            .description("Consul index of the current catalog snapshot")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.catalog.age", current,
+                ref -> ref.get() != null ? ref.get().ageMillis() / 1000.0 : 0)
+            .description("Seconds since the current catalog snapshot was built")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.catalog.staleness", this,
+                engine -> engine.lastContactMillis > 0 ? (System.currentTimeMillis() - engine.lastContactMillis) / 1000.0 : 0)
+            .description("Seconds since Consul last answered a catalog watch")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.catalog.version", current,
+                ref -> ref.get() != null ? ref.get().version() : 0)
+            .description("Version of the current catalog snapshot")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.catalog.instances", current,
+                ref -> ref.get() != null ? ref.get().size() : 0)
+            .description("Healthy instances in the current catalog snapshot")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.discovery.catalog.watches", watches, Map::size)
+            .description("Active per-service Consul health watches")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Per-service long-poll state
+     */
+    private static final class ServiceWatch {
+        final String name;
+        volatile long index;
+        volatile List<CatalogInstance> instances;
+        volatile Cancellable inflight;
+
+        ServiceWatch(String name) {
+            this.name = name;
+        }
+
+        void cancel() {
+            Cancellable poll = inflight;
+            if (poll != null) {
+                poll.cancel();
+            }
+        }
+    }
+}
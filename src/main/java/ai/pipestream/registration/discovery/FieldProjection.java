@@ -0,0 +1,198 @@
+package ai.pipestream.registration.discovery;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.Message;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A {@link FieldMask} applied to discovery responses, for example {@code service_id,host,port}.
+ * <p>
+ * Paths name fields of the per-instance message the RPC returns ({@code ServiceDetails},
+ * {@code ModuleDetails} or {@code ServiceResolveResponse}); nested message fields are reached
+ * with dots, e.g. {@code registered_at.seconds}. Both proto and JSON field names are accepted.
+ * A projected message keeps only the masked fields, so everything else is neither copied nor
+ * serialized.
+ */
+public final class FieldProjection {
+
+    /**
+     * Projection that keeps every field
+     */
+    public static final FieldProjection ALL = new FieldProjection(FieldMask.getDefaultInstance(), new Node());
+
+    private final FieldMask mask;
+    private final Node root;
+
+    private FieldProjection(FieldMask mask, Node root) {
+        this.mask = mask;
+        this.root = root;
+    }
+
+    /**
+     * Parse a comma-separated list of field paths; blank means every field
+     */
+    public static FieldProjection parse(String paths) {
+        if (paths == null || paths.isBlank()) {
+            return ALL;
+        }
+        FieldMask.Builder mask = FieldMask.newBuilder();
+        for (String path : paths.split(",")) {
+            if (!path.isBlank()) {
+                mask.addPaths(path.trim());
+            }
+        }
+        return of(mask.build());
+    }
+
+    public static FieldProjection of(FieldMask mask) {
+        if (mask.getPathsCount() == 0) {
+            return ALL;
+        }
+        // Sorted and de-duplicated, so equal masks compare equal whatever order they were sent in
+        FieldMask normalized = FieldMask.newBuilder().addAllPaths(new TreeSet<>(mask.getPathsList())).build();
+        Node root = new Node();
+        for (String path : normalized.getPathsList()) {
+            root.add(path.split("\\."), 0);
+        }
+        return new FieldProjection(normalized, root);
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public FieldMask mask() {
+        return mask;
+    }
+
+    /**
+     * Check every path against {@code descriptor}, so an unknown field fails the call up front
+     * instead of silently producing empty messages
+     *
+     * @throws IllegalArgumentException if a path does not name a field of {@code descriptor}
+     */
+    public FieldProjection validate(Descriptor descriptor) {
+        for (String path : mask.getPathsList()) {
+            Descriptor current = descriptor;
+            String[] segments = path.split("\\.");
+            for (int i = 0; i < segments.length; i++) {
+                FieldDescriptor field = field(current, segments[i]);
+                if (field == null) {
+                    throw new IllegalArgumentException(
+                        "Unknown field '" + path + "' in field mask for " + descriptor.getName());
+                }
+                if (i < segments.length - 1) {
+                    if (field.getJavaType() != FieldDescriptor.JavaType.MESSAGE || field.isRepeated()) {
+                        throw new IllegalArgumentException(
+                            "Field mask path '" + path + "' descends into non-message field " + field.getName());
+                    }
+                    current = field.getMessageType();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * The masked fields of {@code message}; the message itself when the projection keeps everything
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Message> M apply(M message) {
+        if (isAll()) {
+            return message;
+        }
+        return (M) project(message, root);
+    }
+
+    public <M extends Message> List<M> applyAll(List<M> messages) {
+        if (isAll()) {
+            return messages;
+        }
+        return messages.stream().map(this::apply).toList();
+    }
+
+    private static Message project(Message message, Node node) {
+        Message.Builder builder = message.newBuilderForType();
+        Descriptor descriptor = message.getDescriptorForType();
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            FieldDescriptor field = field(descriptor, child.getKey());
+            if (field == null) {
+                continue;
+            }
+            if (field.isRepeated()) {
+                if (message.getRepeatedFieldCount(field) > 0) {
+                    builder.setField(field, message.getField(field));
+                }
+            } else if (message.hasField(field)) {
+                Object value = message.getField(field);
+                builder.setField(field, child.getValue().isLeaf() ? value : project((Message) value, child.getValue()));
+            }
+        }
+        return builder.build();
+    }
+
+    private static FieldDescriptor field(Descriptor descriptor, String name) {
+        FieldDescriptor field = descriptor.findFieldByName(name);
+        if (field != null) {
+            return field;
+        }
+        for (FieldDescriptor candidate : descriptor.getFields()) {
+            if (candidate.getJsonName().equals(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FieldProjection projection && mask.equals(projection.mask);
+    }
+
+    @Override
+    public int hashCode() {
+        return mask.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "<all>" : String.join(",", mask.getPathsList());
+    }
+
+    /**
+     * One level of the path tree; a node without children keeps its whole field
+     */
+    private static final class Node {
+        final Map<String, Node> children = new LinkedHashMap<>();
+
+        void add(String[] segments, int position) {
+            if (position == segments.length) {
+                return;
+            }
+            Node child = children.get(segments[position]);
+            if (child != null && child.isLeaf()) {
+                // A shorter path already keeps the whole field
+                return;
+            }
+            if (child == null) {
+                child = new Node();
+                children.put(segments[position], child);
+            }
+            if (position == segments.length - 1) {
+                child.children.clear();
+                return;
+            }
+            child.add(segments, position + 1);
+        }
+
+        boolean isLeaf() {
+            return children.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index over the instances of one service. Each tag and capability maps to a
+ * bitset of instance ordinals, so required-tag and required-capability filters are
+ * bitset intersections rather than per-instance list scans. Instances are also grouped by
+ * {@link Locality} tier, so locality-aware resolves look up the caller's host, rack,
+ * subnet and zone instead of comparing addresses per request.
+ * <p>
+ * Instances are immutable once indexed; the index is built with the snapshot and shared
+ * by all readers.
+ */
+public final class InstanceIndex {
+
+    private static final InstanceIndex EMPTY = new InstanceIndex(List.of());
+
+    private final List<CatalogInstance> instances;
+    private final Map<String, BitSet> byTag;
+    private final Map<String, BitSet> byCapability;
+    private final Map<CatalogInstance, Locality> localities;
+    private final Map<Locality.Tier, Map<String, List<CatalogInstance>>> byLocality;
+
+    private InstanceIndex(List<CatalogInstance> instances) {
+        this.instances = instances;
+        this.byTag = new HashMap<>();
+        this.byCapability = new HashMap<>();
+        this.localities = new IdentityHashMap<>();
+        this.byLocality = new EnumMap<>(Locality.Tier.class);
+        for (int ordinal = 0; ordinal < instances.size(); ordinal++) {
+            CatalogInstance instance = instances.get(ordinal);
+            Locality locality = Locality.of(instance);
+            localities.put(instance, locality);
+            for (Locality.Tier tier : Locality.Tier.NEAREST_FIRST) {
+                String key = tier.keyOf(locality);
+                if (key != null) {
+                    byLocality.computeIfAbsent(tier, t -> new HashMap<>())
+                        .computeIfAbsent(key, k -> new ArrayList<>()).add(instance);
+                }
+            }
+            for (String tag : instance.tags()) {
+                byTag.computeIfAbsent(tag, t -> new BitSet()).set(ordinal);
+            }
+            for (String capability : instance.capabilities()) {
+                byCapability.computeIfAbsent(capability, c -> new BitSet()).set(ordinal);
+            }
+        }
+    }
+
+    public static InstanceIndex of(List<CatalogInstance> instances) {
+        return instances.isEmpty() ? EMPTY : new InstanceIndex(List.copyOf(instances));
+    }
+
+    public static InstanceIndex empty() {
+        return EMPTY;
+    }
+
+    public List<CatalogInstance> instances() {
+        return instances;
+    }
+
+    /**
+     * Instances carrying every required tag and capability, in index order.
+     * Returns the full instance list without copying when nothing is required.
+     */
+    public List<CatalogInstance> matching(Collection<String> requiredTags, Collection<String> requiredCapabilities) {
+        if (requiredTags.isEmpty() && requiredCapabilities.isEmpty()) {
+            return instances;
+        }
+
+        // Start from the most selective set so the intersection shrinks as early as possible
+        BitSet smallest = null;
+        for (String tag : requiredTags) {
+            BitSet bits = byTag.get(tag);
+            if (bits == null) {
+                return List.of();
+            }
+            if (smallest == null || bits.cardinality() < smallest.cardinality()) {
+                smallest = bits;
+            }
+        }
+        for (String capability : requiredCapabilities) {
+            BitSet bits = byCapability.get(capability);
+            if (bits == null) {
+                return List.of();
+            }
+            if (smallest == null || bits.cardinality() < smallest.cardinality()) {
+                smallest = bits;
+            }
+        }
+
+        List<CatalogInstance> matches = new ArrayList<>(smallest.cardinality());
+        for (int ordinal = smallest.nextSetBit(0); ordinal >= 0; ordinal = smallest.nextSetBit(ordinal + 1)) {
+            if (allSet(byTag, requiredTags, ordinal) && allSet(byCapability, requiredCapabilities, ordinal)) {
+                matches.add(instances.get(ordinal));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The candidates in the nearest tier that holds any of them, or {@code null} when none
+     * shares even a zone with the caller. {@code candidates} must come from this index;
+     * when they are all of its instances the tier's prebuilt list is returned as is.
+     */
+    public Nearest nearest(List<CatalogInstance> candidates, Locality caller) {
+        if (candidates.isEmpty() || caller.isUnknown()) {
+            return null;
+        }
+        for (Locality.Tier tier : Locality.Tier.NEAREST_FIRST) {
+            String key = tier.keyOf(caller);
+            List<CatalogInstance> group = key != null
+                ? byLocality.getOrDefault(tier, Map.of()).get(key)
+                : null;
+            if (group == null) {
+                continue;
+            }
+            if (candidates == instances) {
+                return new Nearest(tier, group);
+            }
+            List<CatalogInstance> near = new ArrayList<>();
+            for (CatalogInstance candidate : candidates) {
+                Locality locality = localities.get(candidate);
+                if (locality != null && key.equals(tier.keyOf(locality))) {
+                    near.add(candidate);
+                }
+            }
+            if (!near.isEmpty()) {
+                return new Nearest(tier, near);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Candidates sharing the caller's {@code tier}
+     */
+    public record Nearest(Locality.Tier tier, List<CatalogInstance> instances) {
+    }
+
+    private static boolean allSet(Map<String, BitSet> index, Collection<String> keys, int ordinal) {
+        for (String key : keys) {
+            if (!index.get(key).get(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
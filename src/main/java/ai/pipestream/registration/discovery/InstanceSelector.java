@@ -0,0 +1,293 @@
+package ai.pipestream.registration.discovery;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks one instance out of the healthy candidates of a service.
+ * <p>
+ * Strategy state lives in per-service {@link ServiceState} entries of a concurrent map and
+ * is only ever updated with atomics, so concurrent resolves never block each other.
+ */
+@ApplicationScoped
+public class InstanceSelector {
+
+    static final String WEIGHT_KEY = "weight";
+
+    @ConfigProperty(name = "pipeline.discovery.resolve.default-strategy", defaultValue = "ROUND_ROBIN")
+    LoadBalancingStrategy defaultStrategy;
+
+    @ConfigProperty(name = "pipeline.discovery.resolve.max-candidates", defaultValue = "10")
+    int maxCandidates;
+
+    private final Map<String, ServiceState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Choose one of {@code candidates}, which must not be empty
+     */
+    public Selection select(String serviceName, List<CatalogInstance> candidates, ResolveOptions options) {
+        LoadBalancingStrategy strategy = effectiveStrategy(candidates, options);
+        ServiceState state = states.computeIfAbsent(serviceName, name -> new ServiceState());
+        state.prune(candidates);
+
+        if (candidates.size() == 1) {
+            state.recordPick(candidates.get(0));
+            return new Selection(candidates.get(0), strategy, "Selected only matching instance via " + strategy);
+        }
+
+        return switch (strategy) {
+            case ROUND_ROBIN -> roundRobin(state, candidates);
+            case RANDOM -> random(state, candidates);
+            case WEIGHTED -> weighted(state, candidates);
+            case POWER_OF_TWO_CHOICES -> powerOfTwo(state, candidates);
+            case CONSISTENT_HASH -> consistentHash(state, candidates, options.hashKey());
+        };
+    }
+
+    /**
+     * Up to {@code count} of {@code candidates} in the order a client should try them,
+     * starting with {@code first} when given. The order follows the strategy that made the
+     * selection, so failover behaves as the next resolves would have: the next instances in
+     * the rotation, highest rendezvous scores for a hash key, least-used for P2C, and a
+     * weighted or plain shuffle for the random strategies. Only the first pick counts as used.
+     */
+    public List<CatalogInstance> rank(String serviceName, CatalogInstance first, LoadBalancingStrategy strategy,
+                                      List<CatalogInstance> candidates, ResolveOptions options, int count) {
+        int limit = Math.min(Math.min(count, maxCandidates), candidates.size());
+        List<CatalogInstance> ranked = new ArrayList<>(Math.max(limit, 0));
+        if (limit <= 0) {
+            return ranked;
+        }
+        if (first != null) {
+            ranked.add(first);
+        }
+        List<CatalogInstance> rest = new ArrayList<>(candidates.size());
+        for (CatalogInstance candidate : candidates) {
+            if (candidate != first) {
+                rest.add(candidate);
+            }
+        }
+        ServiceState state = states.get(serviceName);
+        switch (strategy) {
+            case ROUND_ROBIN -> {
+                // Continue the rotation from the pick, as the following resolves would
+                int start = first != null ? candidates.indexOf(first)
+                    : state != null ? (int) Math.floorMod(state.cursor.get(), (long) candidates.size()) - 1 : -1;
+                for (int step = 1; step <= candidates.size() && ranked.size() < limit; step++) {
+                    CatalogInstance next = candidates.get(Math.floorMod(start + step, candidates.size()));
+                    if (next != first) {
+                        ranked.add(next);
+                    }
+                }
+                return ranked;
+            }
+            case CONSISTENT_HASH -> {
+                long keyHash = hash(options.hashKey() != null ? options.hashKey() : "");
+                rest.sort(Comparator.comparingLong((CatalogInstance c) -> rendezvousScore(keyHash, c)).reversed());
+            }
+            case POWER_OF_TWO_CHOICES -> rest.sort(Comparator.comparingLong(c -> state != null ? state.picks(c) : 0));
+            case WEIGHTED -> {
+                // Efraimidis-Spirakis: sorting by u^(1/w) samples by weight without replacement
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Map<CatalogInstance, Double> keys = new IdentityHashMap<>();
+                for (CatalogInstance candidate : rest) {
+                    long weight = weightOf(candidate);
+                    keys.put(candidate, weight > 0 ? Math.pow(random.nextDouble(), 1.0 / weight) : -1.0);
+                }
+                rest.sort(Comparator.comparingDouble((CatalogInstance c) -> keys.get(c)).reversed());
+            }
+            case RANDOM -> Collections.shuffle(rest, ThreadLocalRandom.current());
+        }
+        for (CatalogInstance candidate : rest) {
+            if (ranked.size() >= limit) {
+                break;
+            }
+            ranked.add(candidate);
+        }
+        return ranked;
+    }
+
+    /**
+     * Request override first, then the service's own {@code lb-strategy} metadata, then configuration
+     */
+    LoadBalancingStrategy effectiveStrategy(List<CatalogInstance> candidates, ResolveOptions options) {
+        if (options.strategy() != null) {
+            return options.strategy();
+        }
+        if (!candidates.isEmpty()) {
+            String declared = candidates.get(0).metadata().get(LoadBalancingStrategy.METADATA_KEY);
+            if (declared != null) {
+                return LoadBalancingStrategy.parse(declared).orElse(defaultStrategy);
+            }
+        }
+        return defaultStrategy;
+    }
+
+    private Selection roundRobin(ServiceState state, List<CatalogInstance> candidates) {
+        int index = (int) Math.floorMod(state.cursor.getAndIncrement(), (long) candidates.size());
+        CatalogInstance chosen = candidates.get(index);
+        state.recordPick(chosen);
+        return new Selection(chosen, LoadBalancingStrategy.ROUND_ROBIN,
+            String.format("Selected instance %d of %d via ROUND_ROBIN", index + 1, candidates.size()));
+    }
+
+    private Selection random(ServiceState state, List<CatalogInstance> candidates) {
+        int index = ThreadLocalRandom.current().nextInt(candidates.size());
+        CatalogInstance chosen = candidates.get(index);
+        state.recordPick(chosen);
+        return new Selection(chosen, LoadBalancingStrategy.RANDOM,
+            String.format("Selected instance %d of %d via RANDOM", index + 1, candidates.size()));
+    }
+
+    private Selection weighted(ServiceState state, List<CatalogInstance> candidates) {
+        long total = 0;
+        for (CatalogInstance candidate : candidates) {
+            total += weightOf(candidate);
+        }
+        if (total <= 0) {
+            Selection fallback = random(state, candidates);
+            return new Selection(fallback.instance(), LoadBalancingStrategy.WEIGHTED,
+                "Selected random instance via WEIGHTED (no positive weights)");
+        }
+
+        long point = ThreadLocalRandom.current().nextLong(total);
+        CatalogInstance chosen = candidates.get(candidates.size() - 1);
+        for (CatalogInstance candidate : candidates) {
+            point -= weightOf(candidate);
+            if (point < 0) {
+                chosen = candidate;
+                break;
+            }
+        }
+        state.recordPick(chosen);
+        return new Selection(chosen, LoadBalancingStrategy.WEIGHTED,
+            String.format("Selected instance with weight %d of %d via WEIGHTED", weightOf(chosen), total));
+    }
+
+    private Selection powerOfTwo(ServiceState state, List<CatalogInstance> candidates) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        CatalogInstance a = candidates.get(first);
+        CatalogInstance b = candidates.get(second);
+        CatalogInstance chosen = state.picks(a) <= state.picks(b) ? a : b;
+        state.recordPick(chosen);
+        return new Selection(chosen, LoadBalancingStrategy.POWER_OF_TWO_CHOICES,
+            "Selected less-used of two random instances via POWER_OF_TWO_CHOICES");
+    }
+
+    private Selection consistentHash(ServiceState state, List<CatalogInstance> candidates, String hashKey) {
+        if (hashKey == null || hashKey.isEmpty()) {
+            Selection fallback = roundRobin(state, candidates);
+            return new Selection(fallback.instance(), LoadBalancingStrategy.ROUND_ROBIN,
+                fallback.reason() + " (CONSISTENT_HASH requested without a hash key)");
+        }
+
+        long keyHash = hash(hashKey);
+        CatalogInstance chosen = null;
+        long best = Long.MIN_VALUE;
+        for (CatalogInstance candidate : candidates) {
+            long score = rendezvousScore(keyHash, candidate);
+            if (chosen == null || score > best) {
+                best = score;
+                chosen = candidate;
+            }
+        }
+        state.recordPick(chosen);
+        return new Selection(chosen, LoadBalancingStrategy.CONSISTENT_HASH,
+            "Selected instance via CONSISTENT_HASH on caller key");
+    }
+
+    static long rendezvousScore(long keyHash, CatalogInstance candidate) {
+        return mix(keyHash ^ hash(candidate.serviceId()));
+    }
+
+    static long weightOf(CatalogInstance instance) {
+        String weight = instance.metadata().get(WEIGHT_KEY);
+        if (weight == null) {
+            return 1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(weight.trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreads the combined hash across all bits
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Outcome of a selection, with the human-readable reason reported to callers
+     */
+    public record Selection(CatalogInstance instance, LoadBalancingStrategy strategy, String reason) {
+    }
+
+    /**
+     * Lock-free balancing state for one service name
+     */
+    private static final class ServiceState {
+        final AtomicLong cursor = new AtomicLong();
+        final Map<String, AtomicLong> picks = new ConcurrentHashMap<>();
+
+        long picks(CatalogInstance instance) {
+            AtomicLong count = picks.get(instance.serviceId());
+            return count != null ? count.get() : 0;
+        }
+
+        void recordPick(CatalogInstance instance) {
+            picks.computeIfAbsent(instance.serviceId(), id -> new AtomicLong()).incrementAndGet();
+        }
+
+        /**
+         * Forget counters of instances that have left the catalog once they clearly outnumber the live ones
+         */
+        void prune(List<CatalogInstance> candidates) {
+            if (picks.size() <= candidates.size() * 2 + 16) {
+                return;
+            }
+            Set<String> live = new HashSet<>();
+            for (CatalogInstance candidate : candidates) {
+                live.add(candidate.serviceId());
+            }
+            picks.keySet().retainAll(live);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ai.pipestream.registration.discovery;
+
+/**
+ * A page of a list response and the cursor for the page after it
+ *
+ * @param nextCursor cursor for the following page, or {@code null} on the last page
+ */
+public record ListPage<T>(T response, String nextCursor) {
+}
@@ -0,0 +1,43 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Strategies for choosing one instance among the healthy candidates of a service
+ */
+public enum LoadBalancingStrategy {
+    /** Rotate through candidates with a per-service counter */
+    ROUND_ROBIN,
+    /** Uniformly random candidate */
+    RANDOM,
+    /** Random candidate in proportion to its {@code weight} metadata (default 1) */
+    WEIGHTED,
+    /** Two random candidates, keep the one this registry has handed out least */
+    POWER_OF_TWO_CHOICES,
+    /** Rendezvous hashing on a caller-provided key; stable while the candidate set is */
+    CONSISTENT_HASH;
+
+    /**
+     * Metadata key a service can register to choose its own default strategy
+     */
+    public static final String METADATA_KEY = "lb-strategy";
+
+    /**
+     * Lenient parse accepting any case and dashes, e.g. {@code round-robin}
+     */
+    public static Optional<LoadBalancingStrategy> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        String normalized = value.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if ("P2C".equals(normalized) || "POWER_OF_TWO".equals(normalized)) {
+            return Optional.of(POWER_OF_TWO_CHOICES);
+        }
+        try {
+            return Optional.of(valueOf(normalized));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ai.pipestream.registration.discovery;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Where an instance or a caller runs: its host, its /24 (IPv4) or /64 (IPv6) subnet, and the
+ * {@code zone} and {@code rack} its registration declared in metadata. Any part may be
+ * {@code null} when unknown; unknown parts never match.
+ *
+ * @param host   normalized host; loopback addresses all map to {@code localhost}
+ * @param subnet network prefix of an IP literal host, {@code null} for host names
+ * @param rack   {@code rack} metadata
+ * @param zone   {@code zone} metadata
+ */
+public record Locality(String host, String subnet, String rack, String zone) {
+
+    public static final String ZONE_KEY = "zone";
+    public static final String RACK_KEY = "rack";
+    public static final Locality UNKNOWN = new Locality(null, null, null, null);
+
+    private static final String LOOPBACK = "localhost";
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
+
+    /**
+     * Proximity tiers, nearest first
+     */
+    public enum Tier {
+        HOST, RACK, SUBNET, ZONE;
+
+        String keyOf(Locality locality) {
+            return switch (this) {
+                case HOST -> locality.host();
+                case RACK -> locality.zone() != null && locality.rack() != null
+                    ? locality.zone() + "/" + locality.rack() : locality.rack();
+                case SUBNET -> locality.subnet();
+                case ZONE -> locality.zone();
+            };
+        }
+
+        static final List<Tier> NEAREST_FIRST = List.of(values());
+    }
+
+    public static Locality of(CatalogInstance instance) {
+        String host = normalizeHost(instance.host());
+        return new Locality(host, subnetOf(host),
+            instance.metadata().get(RACK_KEY), instance.metadata().get(ZONE_KEY));
+    }
+
+    /**
+     * Locality of a caller known only by its address
+     */
+    public static Locality ofAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return UNKNOWN;
+        }
+        String host = normalizeHost(address);
+        return new Locality(host, subnetOf(host), null, null);
+    }
+
+    /**
+     * This locality with rack and zone taken from {@code known} where this one lacks them
+     */
+    public Locality withTopologyOf(Locality known) {
+        if (known == null) {
+            return this;
+        }
+        return new Locality(host, subnet, rack != null ? rack : known.rack(), zone != null ? zone : known.zone());
+    }
+
+    public boolean isUnknown() {
+        return host == null && subnet == null && rack == null && zone == null;
+    }
+
+    static String normalizeHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        String normalized = host.toLowerCase(Locale.ROOT);
+        if (normalized.startsWith("[") && normalized.endsWith("]")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        if (normalized.startsWith("::ffff:") && IPV4.matcher(normalized.substring(7)).matches()) {
+            normalized = normalized.substring(7);
+        }
+        if (normalized.equals(LOOPBACK) || normalized.startsWith("127.") || normalized.equals("::1")
+                || normalized.equals("0:0:0:0:0:0:0:1")) {
+            return LOOPBACK;
+        }
+        return normalized;
+    }
+
+    /**
+     * Network prefix of an IP literal, worked out textually so that host names never trigger DNS
+     */
+    static String subnetOf(String host) {
+        if (host == null || host.equals(LOOPBACK)) {
+            return null;
+        }
+        if (IPV4.matcher(host).matches()) {
+            return host.substring(0, host.lastIndexOf('.')) + ".0/24";
+        }
+        if (host.indexOf(':') >= 0) {
+            String[] groups = expandIpv6(host);
+            return groups == null ? null : String.join(":", groups[0], groups[1], groups[2], groups[3]) + "::/64";
+        }
+        return null;
+    }
+
+    private static String[] expandIpv6(String address) {
+        int zoneIndex = address.indexOf('%');
+        if (zoneIndex >= 0) {
+            address = address.substring(0, zoneIndex);
+        }
+        String[] halves = address.split("::", -1);
+        if (halves.length > 2) {
+            return null;
+        }
+        String[] head = halves[0].isEmpty() ? new String[0] : halves[0].split(":");
+        String[] tail = halves.length == 2 && !halves[1].isEmpty() ? halves[1].split(":") : new String[0];
+        int missing = 8 - head.length - tail.length;
+        if (missing < 0 || (halves.length == 1 && missing != 0)) {
+            return null;
+        }
+        String[] groups = new String[8];
+        int position = 0;
+        for (String group : head) {
+            groups[position++] = strip(group);
+        }
+        for (int i = 0; i < missing; i++) {
+            groups[position++] = "0";
+        }
+        for (String group : tail) {
+            groups[position++] = strip(group);
+        }
+        return groups;
+    }
+
+    private static String strip(String group) {
+        String stripped = group.replaceFirst("^0+(?=.)", "");
+        return stripped.isEmpty() ? "0" : stripped;
+    }
+}
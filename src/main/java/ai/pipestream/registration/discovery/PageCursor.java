@@ -0,0 +1,56 @@
+package ai.pipestream.registration.discovery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Opaque position in a paged catalog listing: the catalog version the page was cut from
+ * and the last instance it contained. Instances are ordered by service name then ID, so
+ * a cursor stays meaningful when the catalog moves on: the next page resumes after that
+ * instance, without repeating or skipping instances that were present on both versions.
+ */
+public record PageCursor(long version, String serviceName, String serviceId) {
+
+    /**
+     * The order instances appear in snapshot listings
+     */
+    public static final Comparator<CatalogInstance> ORDER = Comparator
+        .comparing(CatalogInstance::serviceName)
+        .thenComparing(CatalogInstance::serviceId);
+
+    private static final String SEPARATOR = "\n";
+
+    public static PageCursor after(long version, CatalogInstance instance) {
+        return new PageCursor(version, instance.serviceName(), instance.serviceId());
+    }
+
+    public String encode() {
+        String raw = version + SEPARATOR + serviceName + SEPARATOR + serviceId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed page cursor");
+            }
+            return new PageCursor(Long.parseLong(parts[0]), parts[1], parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Whether {@code instance} sorts after the position this cursor marks
+     */
+    public boolean precedes(CatalogInstance instance) {
+        int byName = instance.serviceName().compareTo(serviceName);
+        return byName > 0 || (byName == 0 && instance.serviceId().compareTo(serviceId) > 0);
+    }
+}
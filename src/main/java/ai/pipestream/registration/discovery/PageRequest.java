@@ -0,0 +1,10 @@
+package ai.pipestream.registration.discovery;
+
+/**
+ * One page of a list call
+ *
+ * @param pageSize maximum number of instances to return
+ * @param cursor   cursor returned with the previous page, or {@code null} for the first page
+ */
+public record PageRequest(int pageSize, String cursor) {
+}
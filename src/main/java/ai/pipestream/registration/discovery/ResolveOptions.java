@@ -0,0 +1,31 @@
+package ai.pipestream.registration.discovery;
+
+/**
+ * Caller preferences for a single resolve call
+ *
+ * @param strategy balancing strategy to use, or {@code null} for the service's or the configured default
+ * @param hashKey  key for {@link LoadBalancingStrategy#CONSISTENT_HASH}, may be {@code null}
+ * @param filter   extra condition candidates must satisfy besides the requested tags and capabilities
+ * @param clientAddress address the call came from, used by {@code prefer_local}; may be {@code null}
+ * @param candidates how many ranked instances to return for client-side failover, at least 1
+ */
+public record ResolveOptions(LoadBalancingStrategy strategy, String hashKey, CatalogFilter filter,
+                             String clientAddress, int candidates) {
+
+    private static final ResolveOptions DEFAULTS = new ResolveOptions(null, null, CatalogFilter.ALL, null, 1);
+
+    public ResolveOptions {
+        if (filter == null) {
+            filter = CatalogFilter.ALL;
+        }
+        candidates = Math.max(1, candidates);
+    }
+
+    public ResolveOptions(LoadBalancingStrategy strategy, String hashKey) {
+        this(strategy, hashKey, CatalogFilter.ALL, null, 1);
+    }
+
+    public static ResolveOptions defaults() {
+        return DEFAULTS;
+    }
+}
@@ -1,12 +1,21 @@
 package ai.pipestream.registration.entity;
 
 import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.TreeSet;
 
 /**
  * Entity representing a configuration schema for a service.
@@ -53,6 +62,18 @@ public class ConfigSchema extends PanacheEntityBase {
     @Column(name = "sync_error")
     public String syncError;
     
+    /**
+     * Failed sync attempts since the last successful one
+     */
+    @Column(name = "sync_attempts", nullable = false)
+    public int syncAttempts;
+    
+    /**
+     * Earliest time reconciliation retries a failed sync; {@code null} means now
+     */
+    @Column(name = "next_sync_at")
+    public LocalDateTime nextSyncAt;
+    
     // Factory method
     public static ConfigSchema create(String serviceName, String version, String jsonSchema) {
         ConfigSchema schema = new ConfigSchema();
@@ -67,18 +88,71 @@ public class ConfigSchema extends PanacheEntityBase {
         return String.format("%s-v%s", serviceName, version.replace(".", "_"));
     }
     
+    /**
+     * SHA-256 of the schema's canonical JSON (object keys sorted, no whitespace), hex encoded.
+     * Consul carries this instead of the schema, so clients can tell whether a module's schema
+     * changed without fetching it; being canonical, it matches the schema as MySQL stores it,
+     * whatever key order and spacing were sent. Text that is not JSON is hashed as is.
+     */
+    public static String contentHash(String jsonSchema) {
+        String canonical;
+        try {
+            canonical = canonicalJson(Json.decodeValue(jsonSchema));
+        } catch (DecodeException e) {
+            canonical = jsonSchema;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static String canonicalJson(Object value) {
+        if (value instanceof JsonObject object) {
+            StringBuilder out = new StringBuilder("{");
+            new TreeSet<>(object.fieldNames()).forEach(name -> {
+                if (out.length() > 1) {
+                    out.append(',');
+                }
+                out.append(Json.encode(name)).append(':').append(canonicalJson(object.getValue(name)));
+            });
+            return out.append('}').toString();
+        }
+        if (value instanceof JsonArray array) {
+            StringBuilder out = new StringBuilder("[");
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(canonicalJson(array.getValue(i)));
+            }
+            return out.append(']').toString();
+        }
+        return Json.encode(value);
+    }
+    
     public void markSynced(String artifactId, Long globalId) {
         this.apicurioArtifactId = artifactId;
         this.apicurioGlobalId = globalId;
         this.syncStatus = SyncStatus.SYNCED;
         this.lastSyncAttempt = LocalDateTime.now();
         this.syncError = null;
+        this.syncAttempts = 0;
+        this.nextSyncAt = null;
     }
     
     public void markSyncFailed(String error) {
         this.syncStatus = SyncStatus.FAILED;
         this.lastSyncAttempt = LocalDateTime.now();
         this.syncError = error;
+        this.syncAttempts++;
+    }
+    
+    public void markSyncFailed(String error, LocalDateTime retryAt) {
+        markSyncFailed(error);
+        this.nextSyncAt = retryAt;
     }
     
     public enum SyncStatus {
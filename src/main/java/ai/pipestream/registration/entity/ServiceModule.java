@@ -52,6 +52,13 @@ public class ServiceModule extends PanacheEntityBase {
     @Enumerated(EnumType.STRING)
     public ServiceStatus status = ServiceStatus.ACTIVE;
     
+    /**
+     * SHA-256 of the registration request that produced this row; a re-registration with the
+     * same fingerprint changes nothing but the heartbeat
+     */
+    @Column(name = "registration_fingerprint")
+    public String registrationFingerprint;
+    
     // Convenience methods
     public static ServiceModule create(String serviceName, String host, int port) {
         ServiceModule module = new ServiceModule();
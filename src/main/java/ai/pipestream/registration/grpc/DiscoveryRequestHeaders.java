@@ -0,0 +1,257 @@
+package ai.pipestream.registration.grpc;
+
+import ai.pipestream.platform.registration.ServiceResolveResponse;
+import ai.pipestream.registration.discovery.CatalogFilter;
+import ai.pipestream.registration.discovery.CatalogInstance;
+import ai.pipestream.registration.discovery.LoadBalancingStrategy;
+import ai.pipestream.registration.discovery.PageRequest;
+import ai.pipestream.registration.discovery.ResolveOptions;
+import io.grpc.Context;
+import io.grpc.Metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Optional request headers that tune discovery calls without changing their messages.
+ * {@link DiscoveryRequestHeadersInterceptor} copies them into the gRPC {@link Context},
+ * where the service implementation reads them.
+ */
+public final class DiscoveryRequestHeaders {
+
+    /**
+     * {@code delta} selects delta-encoded watch streams; anything else keeps full lists
+     */
+    static final Metadata.Key<String> WATCH_MODE =
+        Metadata.Key.of("x-watch-mode", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Last catalog version a reconnecting delta watcher has applied
+     */
+    static final Metadata.Key<String> WATCH_RESUME_VERSION =
+        Metadata.Key.of("x-watch-resume-version", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Load-balancing strategy override for resolve calls, see {@link LoadBalancingStrategy#parse(String)}
+     */
+    static final Metadata.Key<String> LB_STRATEGY =
+        Metadata.Key.of("x-lb-strategy", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Affinity key for consistent-hash resolves, e.g. a tenant or document ID
+     */
+    static final Metadata.Key<String> LB_HASH_KEY =
+        Metadata.Key.of("x-lb-hash-key", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Number of ranked candidates a resolve should return for client-side failover
+     */
+    static final Metadata.Key<String> RESOLVE_CANDIDATES =
+        Metadata.Key.of("x-resolve-candidates", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Response header listing the ranked candidates as {@code serviceId@host:port}, best first
+     */
+    static final Metadata.Key<String> RESOLVED_CANDIDATES =
+        Metadata.Key.of("x-resolved-candidates", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Further service names for a resolve call to answer, comma-separated; each is resolved
+     * with the request's tags, capabilities and preferences
+     */
+    static final Metadata.Key<String> RESOLVE_BATCH =
+        Metadata.Key.of("x-resolve-batch", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Response header carrying one serialized {@code ServiceResolveResponse} per name in
+     * {@link #RESOLVE_BATCH}, in the same order. Headers are small: peers reject metadata
+     * over their limit (8 KiB by default in gRPC-Java), so see {@link #resolvedBatchSize(List)}
+     */
+    static final Metadata.Key<byte[]> RESOLVED_BATCH =
+        Metadata.Key.of("x-resolved-batch-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+    /**
+     * Filter expression applied to list and resolve results, see {@code CatalogFilterParser}
+     */
+    static final Metadata.Key<String> FILTER =
+        Metadata.Key.of("x-discovery-filter", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Comma-separated {@code FieldMask} paths limiting which fields of each instance are returned
+     */
+    static final Metadata.Key<String> FIELD_MASK =
+        Metadata.Key.of("x-field-mask", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Page size for list calls; when absent the whole list is returned in one message
+     */
+    static final Metadata.Key<String> PAGE_SIZE =
+        Metadata.Key.of("x-page-size", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Cursor of the page to continue from, as returned in {@link #NEXT_PAGE_CURSOR}
+     */
+    static final Metadata.Key<String> PAGE_CURSOR =
+        Metadata.Key.of("x-page-cursor", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Response header carrying the cursor of the next page; absent on the last page
+     */
+    static final Metadata.Key<String> NEXT_PAGE_CURSOR =
+        Metadata.Key.of("x-next-page-cursor", Metadata.ASCII_STRING_MARSHALLER);
+
+    static final Context.Key<String> WATCH_MODE_KEY = Context.key("x-watch-mode");
+    static final Context.Key<String> WATCH_RESUME_VERSION_KEY = Context.key("x-watch-resume-version");
+    static final Context.Key<String> LB_STRATEGY_KEY = Context.key("x-lb-strategy");
+    static final Context.Key<String> LB_HASH_KEY_KEY = Context.key("x-lb-hash-key");
+    static final Context.Key<String> RESOLVE_CANDIDATES_KEY = Context.key("x-resolve-candidates");
+    static final Context.Key<String> RESOLVE_BATCH_KEY = Context.key("x-resolve-batch");
+    static final Context.Key<String> FILTER_KEY = Context.key("x-discovery-filter");
+    static final Context.Key<String> FIELD_MASK_KEY = Context.key("x-field-mask");
+    static final Context.Key<String> PAGE_SIZE_KEY = Context.key("x-page-size");
+    static final Context.Key<String> PAGE_CURSOR_KEY = Context.key("x-page-cursor");
+    static final Context.Key<String> CLIENT_ADDRESS_KEY = Context.key("discovery-client-address");
+    static final Context.Key<Metadata> RESPONSE_HEADERS_KEY = Context.key("discovery-response-headers");
+
+    private DiscoveryRequestHeaders() {
+    }
+
+    /**
+     * Whether the current call asked for a delta-encoded watch stream
+     */
+    public static boolean deltaWatchRequested() {
+        return "delta".equalsIgnoreCase(WATCH_MODE_KEY.get()) || WATCH_RESUME_VERSION_KEY.get() != null;
+    }
+
+    /**
+     * Catalog version to resume a delta watch from, if the client sent a valid one
+     */
+    public static OptionalLong resumeVersion() {
+        return parseLong(WATCH_RESUME_VERSION_KEY.get());
+    }
+
+    /**
+     * Resolve preferences of the current call; unknown strategies fall back to the defaults
+     */
+    public static ResolveOptions resolveOptions(CatalogFilter filter) {
+        String strategy = LB_STRATEGY_KEY.get();
+        String hashKey = LB_HASH_KEY_KEY.get();
+        String clientAddress = CLIENT_ADDRESS_KEY.get();
+        OptionalLong candidates = parseLong(RESOLVE_CANDIDATES_KEY.get());
+        if (strategy == null && hashKey == null && filter.matchesAll() && clientAddress == null && candidates.isEmpty()) {
+            return ResolveOptions.defaults();
+        }
+        return new ResolveOptions(LoadBalancingStrategy.parse(strategy).orElse(null), hashKey, filter, clientAddress,
+            (int) Math.min(Integer.MAX_VALUE, candidates.orElse(1)));
+    }
+
+    /**
+     * Service names the current resolve call should answer besides its own, in request order
+     */
+    public static List<String> resolveBatch() {
+        String value = RESOLVE_BATCH_KEY.get();
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : value.split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Filter expression sent with the current call, or {@code null}
+     */
+    public static String filterExpression() {
+        return FILTER_KEY.get();
+    }
+
+    /**
+     * Field mask paths sent with the current call, or {@code null}
+     */
+    public static String fieldMask() {
+        return FIELD_MASK_KEY.get();
+    }
+
+    /**
+     * Paging requested by the current call, present when it sent a valid page size
+     */
+    public static Optional<PageRequest> pageRequest() {
+        OptionalLong size = parseLong(PAGE_SIZE_KEY.get());
+        if (size.isEmpty() || size.getAsLong() <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new PageRequest((int) Math.min(Integer.MAX_VALUE, size.getAsLong()), PAGE_CURSOR_KEY.get()));
+    }
+
+    /**
+     * Headers to send with the current call's response. Capture this on the calling thread;
+     * values added before the first response message is sent reach the client.
+     */
+    public static Metadata responseHeaders() {
+        Metadata headers = RESPONSE_HEADERS_KEY.get();
+        return headers != null ? headers : new Metadata();
+    }
+
+    public static void setNextPageCursor(Metadata responseHeaders, String cursor) {
+        if (cursor != null) {
+            synchronized (responseHeaders) {
+                responseHeaders.put(NEXT_PAGE_CURSOR, cursor);
+            }
+        }
+    }
+
+    public static void setResolvedCandidates(Metadata responseHeaders, List<CatalogInstance> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        StringBuilder value = new StringBuilder();
+        for (CatalogInstance candidate : candidates) {
+            if (!value.isEmpty()) {
+                value.append(',');
+            }
+            String host = candidate.host().indexOf(':') >= 0 ? "[" + candidate.host() + "]" : candidate.host();
+            value.append(candidate.serviceId()).append('@').append(host).append(':').append(candidate.port());
+        }
+        synchronized (responseHeaders) {
+            responseHeaders.put(RESOLVED_CANDIDATES, value.toString());
+        }
+    }
+
+    /**
+     * Bytes that {@link #RESOLVED_BATCH} entries for {@code responses} count against the peer's
+     * metadata limit: name, unpadded base64 value and 32 bytes of overhead per entry, as gRPC counts them
+     */
+    public static long resolvedBatchSize(List<ServiceResolveResponse> responses) {
+        long size = 0;
+        for (ServiceResolveResponse response : responses) {
+            long base64 = (4L * response.getSerializedSize() + 2) / 3;
+            size += RESOLVED_BATCH.name().length() + base64 + 32;
+        }
+        return size;
+    }
+
+    public static void setResolvedBatch(Metadata responseHeaders, List<ServiceResolveResponse> responses) {
+        synchronized (responseHeaders) {
+            for (ServiceResolveResponse response : responses) {
+                responseHeaders.put(RESOLVED_BATCH, response.toByteArray());
+            }
+        }
+    }
+
+    private static OptionalLong parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ai.pipestream.registration.grpc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Grpc;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.quarkus.grpc.GlobalInterceptor;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Copies discovery request headers and the caller's address into the gRPC {@link Context}
+ * for the duration of the call, and sends any response headers the call collected along with
+ * its first message
+ */
+@ApplicationScoped
+@GlobalInterceptor
+public class DiscoveryRequestHeadersInterceptor implements ServerInterceptor {
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        Metadata responseHeaders = new Metadata();
+        Context context = Context.current()
+            .withValue(DiscoveryRequestHeaders.WATCH_MODE_KEY, headers.get(DiscoveryRequestHeaders.WATCH_MODE))
+            .withValue(DiscoveryRequestHeaders.WATCH_RESUME_VERSION_KEY, headers.get(DiscoveryRequestHeaders.WATCH_RESUME_VERSION))
+            .withValue(DiscoveryRequestHeaders.LB_STRATEGY_KEY, headers.get(DiscoveryRequestHeaders.LB_STRATEGY))
+            .withValue(DiscoveryRequestHeaders.LB_HASH_KEY_KEY, headers.get(DiscoveryRequestHeaders.LB_HASH_KEY))
+            .withValue(DiscoveryRequestHeaders.RESOLVE_CANDIDATES_KEY, headers.get(DiscoveryRequestHeaders.RESOLVE_CANDIDATES))
+            .withValue(DiscoveryRequestHeaders.RESOLVE_BATCH_KEY, headers.get(DiscoveryRequestHeaders.RESOLVE_BATCH))
+            .withValue(DiscoveryRequestHeaders.FILTER_KEY, headers.get(DiscoveryRequestHeaders.FILTER))
+            .withValue(DiscoveryRequestHeaders.FIELD_MASK_KEY, headers.get(DiscoveryRequestHeaders.FIELD_MASK))
+            .withValue(DiscoveryRequestHeaders.PAGE_SIZE_KEY, headers.get(DiscoveryRequestHeaders.PAGE_SIZE))
+            .withValue(DiscoveryRequestHeaders.PAGE_CURSOR_KEY, headers.get(DiscoveryRequestHeaders.PAGE_CURSOR))
+            .withValue(DiscoveryRequestHeaders.CLIENT_ADDRESS_KEY,
+                clientAddress(call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR)))
+            .withValue(DiscoveryRequestHeaders.RESPONSE_HEADERS_KEY, responseHeaders);
+
+        ServerCall<ReqT, RespT> withResponseHeaders = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendHeaders(Metadata outgoing) {
+                synchronized (responseHeaders) {
+                    outgoing.merge(responseHeaders);
+                }
+                super.sendHeaders(outgoing);
+            }
+        };
+        return Contexts.interceptCall(context, withResponseHeaders, headers, next);
+    }
+
+    /**
+     * The peer's IP as a literal; never resolves names, this runs on every call
+     */
+    private static String clientAddress(SocketAddress remote) {
+        if (remote instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            return inet.getAddress().getHostAddress();
+        }
+        return null;
+    }
+}
@@ -1,6 +1,11 @@
 package ai.pipestream.registration.grpc;
 
 import ai.pipestream.platform.registration.*;
+import ai.pipestream.registration.discovery.CatalogFilter;
+import ai.pipestream.registration.discovery.CatalogFilterCache;
+import ai.pipestream.registration.discovery.FieldProjection;
+import ai.pipestream.registration.discovery.PageRequest;
+import ai.pipestream.registration.discovery.ResolveOptions;
 import ai.pipestream.registration.handlers.ServiceRegistrationHandler;
 import ai.pipestream.registration.handlers.ModuleRegistrationHandler;
 import ai.pipestream.registration.handlers.ServiceDiscoveryHandler;
@@ -10,8 +15,17 @@ import io.smallrye.common.annotation.Blocking;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.Empty;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Main platform registration service implementation
@@ -32,6 +46,16 @@ public class PlatformRegistrationService extends MutinyPlatformRegistrationGrpc.
     
     @Inject
     SchemaRetrievalHandler schemaRetrievalHandler;
+    
+    @Inject
+    CatalogFilterCache filterCache;
+    
+    /**
+     * Most response-header bytes a batch resolve may use, below the 8 KiB clients accept by
+     * default to leave room for the other headers
+     */
+    @ConfigProperty(name = "pipeline.discovery.resolve.max-batch-header-bytes", defaultValue = "6144")
+    int maxBatchHeaderBytes;
 
     @Override
     public Multi<RegistrationEvent> registerService(ServiceRegistrationRequest request) {
@@ -66,23 +90,63 @@ public class PlatformRegistrationService extends MutinyPlatformRegistrationGrpc.
     @Override
     public Uni<ServiceListResponse> listServices(Empty request) {
         LOG.debug("Received request to list all services");
-        return discoveryHandler.listServices();
+        Optional<PageRequest> page = DiscoveryRequestHeaders.pageRequest();
+        CatalogFilter filter;
+        FieldProjection projection;
+        try {
+            filter = filterCache.compile(DiscoveryRequestHeaders.filterExpression());
+            projection = projection(ServiceDetails.getDescriptor());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(invalidArgument(e));
+        }
+        if (page.isEmpty() && filter.matchesAll() && projection.isAll()) {
+            return discoveryHandler.listServices();
+        }
+        Metadata responseHeaders = DiscoveryRequestHeaders.responseHeaders();
+        return discoveryHandler.listServices(page.orElse(null), filter, projection)
+            .map(result -> {
+                DiscoveryRequestHeaders.setNextPageCursor(responseHeaders, result.nextCursor());
+                return result.response();
+            });
     }
     
     @Override
     public Uni<ModuleListResponse> listModules(Empty request) {
         LOG.debug("Received request to list all modules");
-        return discoveryHandler.listModules();
+        Optional<PageRequest> page = DiscoveryRequestHeaders.pageRequest();
+        CatalogFilter filter;
+        FieldProjection projection;
+        try {
+            filter = filterCache.compile(DiscoveryRequestHeaders.filterExpression());
+            projection = projection(ModuleDetails.getDescriptor());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(invalidArgument(e));
+        }
+        if (page.isEmpty() && filter.matchesAll() && projection.isAll()) {
+            return discoveryHandler.listModules();
+        }
+        Metadata responseHeaders = DiscoveryRequestHeaders.responseHeaders();
+        return discoveryHandler.listModules(page.orElse(null), filter, projection)
+            .map(result -> {
+                DiscoveryRequestHeaders.setNextPageCursor(responseHeaders, result.nextCursor());
+                return result.response();
+            });
     }
     
     @Override
     public Uni<ServiceDetails> getService(ServiceLookupRequest request) {
+        FieldProjection projection;
+        try {
+            projection = projection(ServiceDetails.getDescriptor());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(invalidArgument(e));
+        }
         if (request.hasServiceName()) {
             LOG.debugf("Looking up service by name: %s", request.getServiceName());
-            return discoveryHandler.getServiceByName(request.getServiceName());
+            return discoveryHandler.getServiceByName(request.getServiceName()).map(projection::apply);
         } else if (request.hasServiceId()) {
             LOG.debugf("Looking up service by ID: %s", request.getServiceId());
-            return discoveryHandler.getServiceById(request.getServiceId());
+            return discoveryHandler.getServiceById(request.getServiceId()).map(projection::apply);
         } else {
             return Uni.createFrom().failure(new IllegalArgumentException("Must provide service name or ID"));
         }
@@ -90,12 +154,18 @@ public class PlatformRegistrationService extends MutinyPlatformRegistrationGrpc.
     
     @Override
     public Uni<ModuleDetails> getModule(ServiceLookupRequest request) {
+        FieldProjection projection;
+        try {
+            projection = projection(ModuleDetails.getDescriptor());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(invalidArgument(e));
+        }
         if (request.hasServiceName()) {
             LOG.debugf("Looking up module by name: %s", request.getServiceName());
-            return discoveryHandler.getModuleByName(request.getServiceName());
+            return discoveryHandler.getModuleByName(request.getServiceName()).map(projection::apply);
         } else if (request.hasServiceId()) {
             LOG.debugf("Looking up module by ID: %s", request.getServiceId());
-            return discoveryHandler.getModuleById(request.getServiceId());
+            return discoveryHandler.getModuleById(request.getServiceId()).map(projection::apply);
         } else {
             return Uni.createFrom().failure(new IllegalArgumentException("Must provide module name or ID"));
         }
@@ -109,19 +179,91 @@ public class PlatformRegistrationService extends MutinyPlatformRegistrationGrpc.
                  request.getRequiredTagsList(),
                  request.getRequiredCapabilitiesList());
 
-        return discoveryHandler.resolveService(request);
+        CatalogFilter filter;
+        FieldProjection projection;
+        try {
+            filter = filterCache.compile(DiscoveryRequestHeaders.filterExpression());
+            projection = projection(ServiceResolveResponse.getDescriptor());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(invalidArgument(e));
+        }
+        ResolveOptions options = DiscoveryRequestHeaders.resolveOptions(filter);
+        List<String> batch = DiscoveryRequestHeaders.resolveBatch();
+        if (!batch.isEmpty()) {
+            return resolveBatch(request, batch, options, projection);
+        }
+        if (options.candidates() <= 1) {
+            return discoveryHandler.resolveService(request, options).map(projection::apply);
+        }
+        Metadata responseHeaders = DiscoveryRequestHeaders.responseHeaders();
+        return discoveryHandler.resolveWithCandidates(request, options)
+            .map(resolution -> {
+                DiscoveryRequestHeaders.setResolvedCandidates(responseHeaders, resolution.candidates());
+                return projection.apply(resolution.response());
+            });
+    }
+
+    /**
+     * Resolve the request's service and every name in {@code x-resolve-batch} together, each
+     * distinct name looked up once. The extra answers travel in {@code x-resolved-batch-bin};
+     * answers too large for it fail the call with {@code RESOURCE_EXHAUSTED} rather than
+     * sending headers the client would reject.
+     */
+    private Uni<ServiceResolveResponse> resolveBatch(ServiceResolveRequest request, List<String> names,
+                                                     ResolveOptions options, FieldProjection projection) {
+        LOG.debugf("Batch resolving %s with %d more services", request.getServiceName(), names.size());
+        List<ServiceResolveRequest> requests = new ArrayList<>(names.size() + 1);
+        requests.add(request);
+        for (String name : names) {
+            requests.add(request.toBuilder().setServiceName(name).build());
+        }
+        Metadata responseHeaders = DiscoveryRequestHeaders.responseHeaders();
+        return discoveryHandler.resolveServices(requests, options)
+            .map(resolutions -> {
+                List<ServiceResolveResponse> extra = resolutions.subList(1, resolutions.size()).stream()
+                    .map(resolution -> projection.apply(resolution.response()))
+                    .toList();
+                long size = DiscoveryRequestHeaders.resolvedBatchSize(extra);
+                if (size > maxBatchHeaderBytes) {
+                    throw Status.RESOURCE_EXHAUSTED
+                        .withDescription(String.format("Answers for %d batched services need %d bytes of response "
+                            + "headers, over the limit of %d; resolve fewer services per call or narrow them "
+                            + "with x-field-mask", extra.size(), size, maxBatchHeaderBytes))
+                        .asRuntimeException();
+                }
+                if (options.candidates() > 1) {
+                    DiscoveryRequestHeaders.setResolvedCandidates(responseHeaders, resolutions.get(0).candidates());
+                }
+                DiscoveryRequestHeaders.setResolvedBatch(responseHeaders, extra);
+                return projection.apply(resolutions.get(0).response());
+            });
     }
 
     @Override
     public Multi<ServiceListResponse> watchServices(Empty request) {
         LOG.info("Received request to watch services for real-time updates");
-        return discoveryHandler.watchServices();
+        if (DiscoveryRequestHeaders.deltaWatchRequested()) {
+            // Delta entries keep every field: their metadata carries the change and version tags
+            return discoveryHandler.watchServiceDeltas(DiscoveryRequestHeaders.resumeVersion());
+        }
+        try {
+            return discoveryHandler.watchServices(projection(ServiceDetails.getDescriptor()));
+        } catch (IllegalArgumentException e) {
+            return Multi.createFrom().failure(invalidArgument(e));
+        }
     }
 
     @Override
     public Multi<ModuleListResponse> watchModules(Empty request) {
         LOG.info("Received request to watch modules for real-time updates");
-        return discoveryHandler.watchModules();
+        if (DiscoveryRequestHeaders.deltaWatchRequested()) {
+            return discoveryHandler.watchModuleDeltas(DiscoveryRequestHeaders.resumeVersion());
+        }
+        try {
+            return discoveryHandler.watchModules(projection(ModuleDetails.getDescriptor()));
+        } catch (IllegalArgumentException e) {
+            return Multi.createFrom().failure(invalidArgument(e));
+        }
     }
     
     @Override
@@ -131,4 +273,15 @@ public class PlatformRegistrationService extends MutinyPlatformRegistrationGrpc.
                  request.hasVersion() ? request.getVersion() : "latest");
         return schemaRetrievalHandler.getModuleSchema(request);
     }
+    
+    /**
+     * The current call's field mask, checked against the message each returned instance uses
+     */
+    private static FieldProjection projection(Descriptor descriptor) {
+        return FieldProjection.parse(DiscoveryRequestHeaders.fieldMask()).validate(descriptor);
+    }
+    
+    private static StatusRuntimeException invalidArgument(IllegalArgumentException e) {
+        return Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+    }
 }
@@ -1,5 +1,6 @@
 package ai.pipestream.registration.handlers;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Timestamp;
 import ai.pipestream.data.module.MutinyPipeStepProcessorGrpc;
 import ai.pipestream.data.module.RegistrationRequest;
@@ -7,11 +8,15 @@ import ai.pipestream.data.module.ServiceRegistrationMetadata;
 import ai.pipestream.platform.registration.*;
 import ai.pipestream.registration.consul.ConsulHealthChecker;
 import ai.pipestream.registration.consul.ConsulRegistrar;
+import ai.pipestream.registration.discovery.CatalogInstance;
+import ai.pipestream.registration.entity.ConfigSchema;
 import ai.pipestream.registration.entity.ServiceModule;
 import ai.pipestream.dynamic.grpc.client.DynamicGrpcClientFactory;
 import ai.pipestream.registration.events.OpenSearchEventsProducer;
-import ai.pipestream.registration.repository.ApicurioRegistryClient;
 import ai.pipestream.registration.repository.ModuleRepository;
+import ai.pipestream.registration.sync.SchemaSyncWorker;
+import io.grpc.Deadline;
+import io.grpc.Status;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.Context;
@@ -21,8 +26,16 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Handles module registration operations with proper reactive flow
@@ -41,22 +54,92 @@ public class ModuleRegistrationHandler {
     @Inject
     ModuleRepository moduleRepository;
     
-    @Inject
-    ApicurioRegistryClient apicurioClient;
-    
     @Inject
     DynamicGrpcClientFactory grpcClientFactory;
     
     @Inject
     OpenSearchEventsProducer openSearchProducer;
     
+    @Inject
+    RegistrationGuard registrationGuard;
+    
+    @Inject
+    SchemaSyncWorker schemaSyncWorker;
+    
+    private final Map<String, InFlightRegistration> inFlight = new ConcurrentHashMap<>();
+    
     /**
      * Register a module with streaming status updates
-     * Flow: Validate → Consul → Health → Fetch Metadata → Apicurio → Database → OpenSearch
+     * Flow: Validate → Consul → Health → Fetch Metadata → Database → OpenSearch, then Apicurio in the background
+     * <p>
+     * Identical requests for a serviceId that is already registering attach to the running
+     * flow and replay its events instead of starting another one; retrying or crash-looping
+     * modules therefore cost one flow per burst. A changed request stops the running flow,
+     * whose callers fail with {@code ABORTED}, and starts once that flow's Consul entry is
+     * settled. The flow stops once every caller has cancelled or passed its deadline; see
+     * {@link RegistrationGuard}.
      */
     public Multi<RegistrationEvent> registerModule(ModuleRegistrationRequest request) {
         String serviceId = ConsulRegistrar.generateServiceId(request.getModuleName(), request.getHost(), request.getPort());
+        Deadline deadline = registrationGuard.currentDeadline();
         
+        return Multi.createFrom().deferred(() -> {
+            InFlightRegistration registration = join(request, serviceId);
+            return registrationGuard.withDeadline(deadline, registration.progress(), registration.events().attach());
+        });
+    }
+    
+    /**
+     * Number of registrations currently running
+     */
+    int inFlightRegistrations() {
+        return inFlight.size();
+    }
+    
+    private InFlightRegistration join(ModuleRegistrationRequest request, String serviceId) {
+        CompletableFuture<Void> previousSettled = new CompletableFuture<>();
+        InFlightRegistration[] superseded = new InFlightRegistration[1];
+        InFlightRegistration joined = inFlight.compute(serviceId, (id, running) -> {
+            if (running != null && running.request().equals(request)) {
+                LOG.infof("Registration of %s already in progress, attaching to it", id);
+                return running;
+            }
+            superseded[0] = running;
+            return startRegistration(request, id, running == null ? null : previousSettled);
+        });
+        if (superseded[0] != null) {
+            // A changed request (say, a new version) replaces the running flow. Its rollback must be
+            // over before the new flow registers, or its deregister could remove the new instance
+            LOG.infof("Registration of %s changed while in progress, stopping the earlier one", serviceId);
+            superseded[0].progress().abandon("superseded");
+            superseded[0].events().cancel(Status.ABORTED
+                .withDescription("Superseded by a newer registration of " + serviceId)
+                .asRuntimeException());
+            superseded[0].progress().settled().subscribe().with(v -> previousSettled.complete(null));
+        }
+        return joined;
+    }
+    
+    private InFlightRegistration startRegistration(ModuleRegistrationRequest request, String serviceId,
+                                                   CompletableFuture<Void> previousSettled) {
+        RegistrationGuard.Progress progress = new RegistrationGuard.Progress();
+        Multi<RegistrationEvent> flow = previousSettled == null
+            ? registrationPipeline(request, serviceId, progress)
+            : Uni.createFrom().completionStage(previousSettled.thenApply(v -> v))
+                .onItem().transformToMulti(v -> registrationPipeline(request, serviceId, progress));
+        Multi<RegistrationEvent> pipeline = registrationGuard.settleOnCancel("module", serviceId, progress, flow);
+        SharedEventStream<RegistrationEvent> events = new SharedEventStream<>(pipeline,
+            () -> inFlight.computeIfPresent(serviceId, (id, current) -> current.progress() == progress ? null : current));
+        return new InFlightRegistration(request, progress, events);
+    }
+    
+    private record InFlightRegistration(ModuleRegistrationRequest request,
+                                        RegistrationGuard.Progress progress,
+                                        SharedEventStream<RegistrationEvent> events) {
+    }
+    
+    private Multi<RegistrationEvent> registrationPipeline(ModuleRegistrationRequest request, String serviceId,
+                                                          RegistrationGuard.Progress progress) {
         // Start with validation as a Uni
         return Uni.createFrom().item(() -> {
             if (!validateModuleRequest(request)) {
@@ -64,15 +147,20 @@ public class ModuleRegistrationHandler {
             }
             return convertModuleToService(request);
         })
-        .onItem().transformToMulti(serviceRequest -> {
-            // Create a Multi that emits events throughout the registration process
-            return Multi.createBy().concatenating()
-                .streams(
-                    Multi.createFrom().item(createEvent(EventType.STARTED, "Starting module registration", serviceId)),
-                    Multi.createFrom().item(createEvent(EventType.VALIDATED, "Module registration request validated", null)),
-                    executeModuleRegistrationAsMulti(request, serviceRequest, serviceId)
-                );
-        })
+        .onItem().transformToMulti(serviceRequest -> refreshIfUnchanged(request, serviceId)
+            .onItem().transformToMulti(unchanged -> {
+                if (unchanged) {
+                    progress.durable();
+                    return unchangedRegistrationEvents(serviceId);
+                }
+                // Create a Multi that emits events throughout the registration process
+                return Multi.createBy().concatenating()
+                    .streams(
+                        Multi.createFrom().item(createEvent(EventType.STARTED, "Starting module registration", serviceId)),
+                        Multi.createFrom().item(createEvent(EventType.VALIDATED, "Module registration request validated", null)),
+                        executeModuleRegistrationAsMulti(request, serviceRequest, serviceId, progress)
+                    );
+            }))
         .onFailure().recoverWithMulti(error -> {
             LOG.error("Module registration failed", error);
             return Multi.createFrom().items(
@@ -81,10 +169,58 @@ public class ModuleRegistrationHandler {
         });
     }
     
+    /**
+     * Fast path for a module re-registering exactly as before: if it is still passing in
+     * Consul and its stored fingerprint matches, only the heartbeat is refreshed and the
+     * Consul, health, metadata, database and Apicurio steps are all skipped
+     * @return true if the registration was unchanged and has been refreshed
+     */
+    private Uni<Boolean> refreshIfUnchanged(ModuleRegistrationRequest request, String serviceId) {
+        String fingerprint = registrationFingerprint(request);
+        return healthChecker.isPassing(request.getModuleName(), serviceId)
+            .chain(passing -> passing
+                ? onDuplicatedContext(() -> moduleRepository.refreshIfUnchanged(serviceId, fingerprint))
+                : Uni.createFrom().item(false))
+            .onFailure().recoverWithItem(error -> {
+                LOG.debugf("Fingerprint check failed for %s, running full registration: %s", serviceId, error.getMessage());
+                return false;
+            });
+    }
+    
+    private Multi<RegistrationEvent> unchangedRegistrationEvents(String serviceId) {
+        LOG.infof("Module %s re-registered unchanged, refreshed heartbeat only", serviceId);
+        return Multi.createFrom().items(
+            createEvent(EventType.STARTED, "Starting module registration", serviceId),
+            createEvent(EventType.VALIDATED, "Module registration request validated", null),
+            createEvent(EventType.CONSUL_HEALTHY, "Module already registered and healthy in Consul", serviceId),
+            createEvent(EventType.DATABASE_SAVED, "Registration unchanged, heartbeat refreshed", serviceId),
+            createEvent(EventType.COMPLETED, "Module registration completed successfully", serviceId)
+        );
+    }
+    
+    /**
+     * SHA-256 over the deterministic serialization of the request, hex encoded
+     */
+    static String registrationFingerprint(ModuleRegistrationRequest request) {
+        try {
+            byte[] bytes = new byte[request.getSerializedSize()];
+            CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+            out.useDeterministicSerialization();
+            request.writeTo(out);
+            out.checkNoSpaceLeft();
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     private Multi<RegistrationEvent> executeModuleRegistrationAsMulti(ModuleRegistrationRequest request, 
                                                                       ServiceRegistrationRequest serviceRequest,
-                                                                      String serviceId) {
-        return consulRegistrar.registerService(serviceRequest, serviceId)
+                                                                      String serviceId,
+                                                                      RegistrationGuard.Progress progress) {
+        return progress.registerInConsul(() -> consulRegistrar.registerService(serviceRequest, serviceId))
             .onItem().transformToMulti(consulSuccess -> {
                 if (!consulSuccess) {
                     return Multi.createFrom().item(
@@ -95,15 +231,17 @@ public class ModuleRegistrationHandler {
                 return Multi.createBy().concatenating().streams(
                     Multi.createFrom().item(createEvent(EventType.CONSUL_REGISTERED, "Module registered with Consul", serviceId)),
                     Multi.createFrom().item(createEvent(EventType.HEALTH_CHECK_CONFIGURED, "Health check configured", null)),
-                    continueRegistrationFlow(request, serviceId)
+                    continueRegistrationFlow(request, serviceId, progress)
                 );
             });
     }
     
-    private Multi<RegistrationEvent> continueRegistrationFlow(ModuleRegistrationRequest request, String serviceId) {
-        return healthChecker.waitForHealthy(serviceId)
+    private Multi<RegistrationEvent> continueRegistrationFlow(ModuleRegistrationRequest request, String serviceId,
+                                                              RegistrationGuard.Progress progress) {
+        return healthChecker.waitForHealthy(request.getModuleName(), serviceId)
             .onItem().transformToMulti(healthy -> {
                 if (!healthy) {
+                    progress.rolledBack();
                     return rollbackConsulRegistration(serviceId)
                         .onItem().transformToMulti(v -> Multi.createFrom().item(
                             createEventWithError(serviceId, "Module failed health checks", 
@@ -113,77 +251,80 @@ public class ModuleRegistrationHandler {
                 
                 return Multi.createBy().concatenating().streams(
                     Multi.createFrom().item(createEvent(EventType.CONSUL_HEALTHY, "Module reported healthy by Consul", null)),
-                    completeRegistrationFlow(request, serviceId)
+                    completeRegistrationFlow(request, serviceId, progress)
                 );
             });
     }
     
-    private Multi<RegistrationEvent> completeRegistrationFlow(ModuleRegistrationRequest request, String serviceId) {
+    private Multi<RegistrationEvent> completeRegistrationFlow(ModuleRegistrationRequest request, String serviceId,
+                                                              RegistrationGuard.Progress progress) {
         return fetchModuleMetadata(request)
             .chain(metadata -> {
-                String schema = extractOrSynthesizeSchema(metadata, request.getModuleName());
+                String schema = schemaToStore(request, metadata);
                 Map<String, Object> metadataMap = buildMetadataMap(metadata);
 
-                // Create a duplicated (safe) Vert.x context and switch the downstream onto it
-                Context safeCtx = VertxContext.createNewDuplicatedContext();
-
-                return Uni.createFrom().item(1)
-                    .emitOn(r -> safeCtx.runOnContext(x -> r.run()))
-                    .invoke(() -> {
-                        Context ctx = Vertx.currentContext();
-                        boolean duplicated = ctx != null && VertxContext.isDuplicatedContext(ctx);
-                        LOG.debugf("DB segment context: present=%s, duplicated=%s, thread=%s",
-                                ctx != null, duplicated, Thread.currentThread().getName());
-                    })
-                    .chain(ignored -> moduleRepository.registerModule(
+                return onDuplicatedContext(() -> moduleRepository.registerModule(
                         request.getModuleName(),
                         request.getHost(),
                         request.getPort(),
                         request.getVersion(),
                         metadataMap,
-                        schema
+                        schema,
+                        registrationFingerprint(request)
                     ))
+                    .invoke(progress::durable)
                     .map(savedModule -> new DatabaseSaveContext(savedModule, metadata, schema));
             })
-            // After database is done, we can call Apicurio on worker thread
-            .chain(dbContext -> {
-                return apicurioClient.createOrUpdateSchema(
-                        request.getModuleName(),
-                        request.getVersion(),
-                        dbContext.schema
-                    )
-                    .map(schemaResult -> new SavedContext(dbContext.module, schemaResult))
-                    .onFailure().recoverWithItem(err -> {
-                        LOG.warnf(err, "Apicurio registration failed for %s:%s, continuing without registry sync",
-                                request.getModuleName(), request.getVersion());
-                        return new SavedContext(dbContext.module, null);
-                    });
-            })
-            .onItem().transformToMulti(savedContext -> {
-                // Emit to OpenSearch (fire and forget)
+            .onItem().transformToMulti(dbContext -> {
+                // Apicurio is a secondary store: the schema is saved PENDING and synced in the background.
+                // The module is indexed now without an artifact ID, and again with it once the artifact exists
                 openSearchProducer.emitModuleRegistered(
-                    savedContext.module.serviceId,
+                    dbContext.module.serviceId,
                     request.getModuleName(),
                     request.getHost(),
                     request.getPort(),
                     request.getVersion(),
-                    savedContext.module.configSchemaId,
-                    savedContext.schemaResult != null ? savedContext.schemaResult.getArtifactId() : null
+                    dbContext.module.configSchemaId,
+                    ""
                 );
+                schemaSyncWorker.enqueue(dbContext.module.configSchemaId, artifactId ->
+                    openSearchProducer.emitModuleRegistered(
+                        dbContext.module.serviceId,
+                        request.getModuleName(),
+                        request.getHost(),
+                        request.getPort(),
+                        request.getVersion(),
+                        dbContext.module.configSchemaId,
+                        artifactId
+                    ));
                 
                 return Multi.createFrom().items(
                     createEvent(EventType.METADATA_RETRIEVED, "Module metadata retrieved", null),
-                    createEvent(EventType.SCHEMA_VALIDATED, "Schema validated or synthesized", null),
-                    createEvent(EventType.DATABASE_SAVED, "Module registration saved to database", savedContext.module.serviceId),
-                    (savedContext.schemaResult != null
-                        ? createEvent(EventType.APICURIO_REGISTERED, "Schema registered in Apicurio", null)
-                        : createEvent(EventType.SCHEMA_VALIDATED, "Apicurio registry sync skipped (failure)", null)
-                    ),
-                    createEvent(EventType.COMPLETED, "Module registration completed successfully", savedContext.module.serviceId)
+                    createEvent(EventType.SCHEMA_VALIDATED, "Schema validated or synthesized; queued for Apicurio registry sync", null),
+                    createEvent(EventType.DATABASE_SAVED, "Module registration saved to database", dbContext.module.serviceId),
+                    createEvent(EventType.COMPLETED, "Module registration completed successfully", dbContext.module.serviceId)
                 );
             });
     }
     
+    /**
+     * Run a database call on a duplicated (safe) Vert.x context, as Hibernate Reactive requires
+     */
+    private <T> Uni<T> onDuplicatedContext(Supplier<Uni<T>> databaseCall) {
+        // Create a duplicated (safe) Vert.x context and switch the downstream onto it
+        Context safeCtx = VertxContext.createNewDuplicatedContext();
+
+        return Uni.createFrom().item(1)
+            .emitOn(r -> safeCtx.runOnContext(x -> r.run()))
+            .invoke(() -> {
+                Context ctx = Vertx.currentContext();
+                boolean duplicated = ctx != null && VertxContext.isDuplicatedContext(ctx);
+                LOG.debugf("DB segment context: present=%s, duplicated=%s, thread=%s",
+                        ctx != null, duplicated, Thread.currentThread().getName());
+            })
+            .chain(ignored -> databaseCall.get());
+    }
+    
     // Helper classes to pass context through the chain
     private static class DatabaseSaveContext {
         final ServiceModule module;
@@ -197,17 +338,6 @@ public class ModuleRegistrationHandler {
         }
     }
     
-    private static class SavedContext {
-        final ServiceModule module;
-        final ApicurioRegistryClient.SchemaRegistrationResponse schemaResult;
-        
-        SavedContext(ServiceModule module, ApicurioRegistryClient.SchemaRegistrationResponse schemaResult) {
-            this.module = module;
-            this.schemaResult = schemaResult;
-        }
-    }
-    
-    
     /**
      * Unregister a module
      */
@@ -265,6 +395,11 @@ public class ModuleRegistrationHandler {
             .setPort(moduleRequest.getPort())
             .setVersion(moduleRequest.getVersion())
             .putAllMetadata(moduleRequest.getMetadataMap())
+            // Schemas live in MySQL and Apicurio only; Consul meta would copy them into every
+            // health response, watch tick and Raft log entry. Only the hash of the schema that
+            // will be stored goes in, see schemaToStore
+            .removeMetadata(CatalogInstance.SCHEMA_METADATA_KEY)
+            .removeMetadata(CatalogInstance.SCHEMA_HASH_METADATA_KEY)
             .addTags("module")
             .addTags("document-processor")
             .addCapabilities("PipeStepProcessor");
@@ -275,10 +410,9 @@ public class ModuleRegistrationHandler {
             
             builder.putMetadata("module-name", metadata.getModuleName());
             builder.putMetadata("module-version", metadata.getVersion());
+            builder.putMetadata(CatalogInstance.SCHEMA_HASH_METADATA_KEY,
+                ConfigSchema.contentHash(extractOrSynthesizeSchema(metadata, moduleRequest.getModuleName())));
             
-            if (metadata.hasJsonConfigSchema()) {
-                builder.putMetadata("json-config-schema", metadata.getJsonConfigSchema());
-            }
             if (metadata.hasDisplayName()) {
                 builder.putMetadata("display-name", metadata.getDisplayName());
             }
@@ -292,6 +426,19 @@ public class ModuleRegistrationHandler {
         return builder.build();
     }
     
+    /**
+     * The schema a registration stores. Metadata sent with the request takes precedence over
+     * what the module reports once healthy, so that the schema, and with it the hash put in
+     * the first Consul registration, is known before registering. Without metadata in the
+     * request the schema is only known after the fetch and no hash is published, since
+     * Consul meta cannot change without re-registering the service.
+     */
+    private String schemaToStore(ModuleRegistrationRequest request, ServiceRegistrationMetadata fetched) {
+        ServiceRegistrationMetadata source = request.hasServiceRegistrationMetadata()
+            ? request.getServiceRegistrationMetadata() : fetched;
+        return extractOrSynthesizeSchema(source, request.getModuleName());
+    }
+    
     private String extractOrSynthesizeSchema(ServiceRegistrationMetadata metadata, String moduleName) {
         if (metadata.hasJsonConfigSchema() && !metadata.getJsonConfigSchema().isBlank()) {
             return metadata.getJsonConfigSchema();
@@ -0,0 +1,184 @@
+package ai.pipestream.registration.handlers;
+
+import ai.pipestream.platform.registration.RegistrationEvent;
+import ai.pipestream.registration.consul.ConsulRegistrar;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Stops registration pipelines whose caller is gone.
+ * <p>
+ * Cancelling the event stream, whether by client disconnect or by the call's gRPC deadline,
+ * cancels every stage still running (health wait, metadata fetch, database and registry
+ * calls). What already reached Consul is then cleaned up according to how far the pipeline
+ * got: a registration that was never made durable is deregistered, one that was is left in
+ * place for the instance's next heartbeat. A rollback waits for the register call it undoes to
+ * answer first. Each abandoned registration is counted under
+ * {@code pipeline.registration.abandoned} with its kind, reason and outcome. A caller whose
+ * deadline passed is failed with {@code DEADLINE_EXCEEDED} once that is done.
+ */
+@ApplicationScoped
+public class RegistrationGuard {
+
+    private static final Logger LOG = Logger.getLogger(RegistrationGuard.class);
+
+    @Inject
+    ConsulRegistrar consulRegistrar;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    /**
+     * How far a registration got, as reported by its pipeline
+     */
+    public static final class Progress {
+        private volatile CompletableFuture<Boolean> consulRegistration;
+        private volatile boolean rolledBack;
+        private volatile boolean durable;
+        private volatile String leaveReason = "cancelled";
+        private volatile CompletableFuture<Void> settlement;
+
+        /**
+         * Make the Consul register call of this registration. The call is seen through to its
+         * answer even if the pipeline is cancelled meanwhile, so that a rollback can wait for
+         * it instead of racing it
+         */
+        public Uni<Boolean> registerInConsul(Supplier<Uni<Boolean>> register) {
+            return Uni.createFrom().deferred(() -> {
+                CompletableFuture<Boolean> call = register.get().subscribeAsCompletionStage();
+                consulRegistration = call;
+                // A copy, so cancelling the pipeline does not cancel the call itself
+                return Uni.createFrom().completionStage(call.thenApply(registered -> registered));
+            });
+        }
+
+        /**
+         * Everything that must outlive the call has been written; nothing is rolled back after this
+         */
+        public void durable() {
+            durable = true;
+        }
+
+        /**
+         * The pipeline already removed its own Consul registration
+         */
+        public void rolledBack() {
+            rolledBack = true;
+        }
+
+        /**
+         * The registration is being abandoned for {@code reason} rather than by a caller leaving
+         */
+        void abandon(String reason) {
+            leaveReason = reason;
+        }
+
+        /**
+         * Completes once an abandoned registration has been settled, at once if it was not abandoned
+         */
+        Uni<Void> settled() {
+            CompletableFuture<Void> settling = settlement;
+            return settling == null
+                ? Uni.createFrom().voidItem()
+                : Uni.createFrom().completionStage(settling.thenApply(v -> v));
+        }
+    }
+
+    /**
+     * Wrap a registration pipeline so that cancelling it, or reaching the deadline of the
+     * current gRPC call, stops it and settles its Consul registration.
+     * Must be called on the thread handling the call, where its gRPC context is current.
+     */
+    public Multi<RegistrationEvent> guard(String kind, String serviceId, Progress progress,
+                                          Multi<RegistrationEvent> pipeline) {
+        return withDeadline(currentDeadline(), progress, settleOnCancel(kind, serviceId, progress, pipeline));
+    }
+
+    /**
+     * Settle the Consul registration of {@code pipeline} when it is cancelled, giving the
+     * reason of the caller whose leaving cancelled it
+     */
+    public Multi<RegistrationEvent> settleOnCancel(String kind, String serviceId, Progress progress,
+                                                   Multi<RegistrationEvent> pipeline) {
+        return pipeline.onCancellation().invoke(() ->
+            progress.settlement = abandoned(kind, serviceId, progress, progress.leaveReason));
+    }
+
+    /**
+     * End one caller's {@code events} at {@code deadline}, so abandoned work stops even if the
+     * transport never reports the expiry, then fail that caller with {@code DEADLINE_EXCEEDED}
+     * once the registration has been settled; a {@code null} deadline leaves the stream as it is
+     */
+    public Multi<RegistrationEvent> withDeadline(Deadline deadline, Progress progress, Multi<RegistrationEvent> events) {
+        if (deadline == null) {
+            return events.onCancellation().invoke(() -> progress.leaveReason = "cancelled");
+        }
+        // Runs just before the cancellation travels upstream, so the last caller to leave names the reason
+        return events
+            .onCancellation().invoke(() -> progress.leaveReason = deadline.isExpired() ? "deadline" : "cancelled")
+            .select().first(Duration.ofNanos(Math.max(0, deadline.timeRemaining(TimeUnit.NANOSECONDS))))
+            .onCompletion().switchTo(() -> deadline.isExpired()
+                ? progress.settled().onItem().transformToMulti(v -> Multi.createFrom().<RegistrationEvent>failure(
+                    Status.DEADLINE_EXCEEDED.withDescription("Registration did not finish before the deadline")
+                        .asRuntimeException()))
+                : Multi.createFrom().<RegistrationEvent>empty());
+    }
+
+    /**
+     * Deadline of the gRPC call handled on this thread, or {@code null}
+     */
+    public Deadline currentDeadline() {
+        return Context.current().getDeadline();
+    }
+
+    private CompletableFuture<Void> abandoned(String kind, String serviceId, Progress progress, String reason) {
+        CompletableFuture<Boolean> registration = progress.consulRegistration;
+        if (progress.durable) {
+            LOG.infof("%s registration of %s abandoned (%s) after it was saved; leaving it in place",
+                kind, serviceId, reason);
+            count(kind, reason, "left_in_place");
+        } else if (registration != null && !progress.rolledBack) {
+            LOG.infof("%s registration of %s abandoned (%s); rolling back its Consul registration",
+                kind, serviceId, reason);
+            // Deregister only once the register call has answered, or it could land afterwards
+            return Uni.createFrom().completionStage(registration.thenApply(registered -> registered))
+                .chain(registered -> registered
+                    ? consulRegistrar.unregisterService(serviceId).map(success -> success ? "rolled_back" : "rollback_failed")
+                    : Uni.createFrom().item("not_registered"))
+                .onFailure().recoverWithItem(error -> {
+                    LOG.errorf(error, "Failed to roll back abandoned registration of %s", serviceId);
+                    return "rollback_failed";
+                })
+                .invoke(outcome -> count(kind, reason, outcome))
+                .replaceWithVoid()
+                .subscribeAsCompletionStage();
+        } else {
+            LOG.infof("%s registration of %s abandoned (%s) before reaching Consul", kind, serviceId, reason);
+            count(kind, reason, "not_registered");
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void count(String kind, String reason, String outcome) {
+        Counter.builder("pipeline.registration.abandoned")
+            .description("Registrations whose caller cancelled or whose deadline passed, by outcome")
+            .tag("kind", kind)
+            .tag("reason", reason)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+}
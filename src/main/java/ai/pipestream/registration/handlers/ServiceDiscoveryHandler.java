@@ -1,116 +1,407 @@
 package ai.pipestream.registration.handlers;
 
+import com.google.protobuf.Message;
 import com.google.protobuf.Timestamp;
 import ai.pipestream.platform.registration.*;
+import ai.pipestream.registration.consul.ConsulFanOutLimiter;
+import ai.pipestream.registration.discovery.CatalogChange;
+import ai.pipestream.registration.discovery.CatalogDelta;
+import ai.pipestream.registration.discovery.CatalogFilter;
+import ai.pipestream.registration.discovery.CatalogInstance;
+import ai.pipestream.registration.discovery.CatalogSnapshot;
+import ai.pipestream.registration.discovery.CatalogSnapshotEngine;
+import ai.pipestream.registration.discovery.FieldProjection;
+import ai.pipestream.registration.discovery.InstanceIndex;
+import ai.pipestream.registration.discovery.InstanceSelector;
+import ai.pipestream.registration.discovery.ListPage;
+import ai.pipestream.registration.discovery.Locality;
+import ai.pipestream.registration.discovery.PageCursor;
+import ai.pipestream.registration.discovery.PageRequest;
+import ai.pipestream.registration.discovery.ResolveOptions;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.ext.consul.Check;
+import io.vertx.ext.consul.CheckList;
+import io.vertx.ext.consul.HealthState;
+import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.ext.consul.ConsulClient;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * Handles service discovery and lookup operations
+ * Handles service discovery and lookup operations.
+ * Reads are served from the in-memory catalog snapshot when it is ready and fall back
+ * to querying Consul directly otherwise.
  */
 @ApplicationScoped
 public class ServiceDiscoveryHandler {
     
     private static final Logger LOG = Logger.getLogger(ServiceDiscoveryHandler.class);
+    private static final Duration FALLBACK_WATCH_INTERVAL = Duration.ofSeconds(2);
+    private static final int MAX_PROJECTIONS_PER_SNAPSHOT = 16;
+    
+    // Metadata keys that tag each entry of a delta watch frame
+    public static final String CATALOG_VERSION_KEY = "catalog-version";
+    public static final String CATALOG_CHANGE_KEY = "catalog-change";
+    public static final String CHANGE_SNAPSHOT = "snapshot";
+    public static final String CHANGE_ADDED = "added";
+    public static final String CHANGE_CHANGED = "changed";
+    public static final String CHANGE_REMOVED = "removed";
     
     @Inject
     ConsulClient consulClient;
     
+    @Inject
+    CatalogSnapshotEngine catalogEngine;
+    
+    @Inject
+    InstanceSelector instanceSelector;
+    
+    @Inject
+    ConsulFanOutLimiter fanOutLimiter;
+    
+    @Inject
+    Vertx vertx;
+    
+    @ConfigProperty(name = "pipeline.discovery.catalog.max-stale-age", defaultValue = "5m")
+    Duration maxStaleAge;
+    
+    @ConfigProperty(name = "pipeline.discovery.catalog.retry-delay", defaultValue = "2s")
+    Duration retryDelay;
+    
+    @ConfigProperty(name = "pipeline.discovery.list.max-page-size", defaultValue = "500")
+    int maxPageSize;
+    
+    // Last catalog fetched directly from Consul, served while Consul is unreachable
+    private final AtomicReference<CatalogSnapshot> lastGoodCatalog = new AtomicReference<>();
+    private final AtomicBoolean backgroundRefresh = new AtomicBoolean();
+    private volatile boolean consulDown;
+    
+    // List responses of the most recent snapshot, shared by all readers and watchers
+    private final AtomicReference<ListFrames> listFrames = new AtomicReference<>();
+    
+    // Single in-flight Consul catalog fetch shared by concurrent fallback readers
+    private final AtomicReference<CompletableFuture<CatalogSnapshot>> catalogFetch = new AtomicReference<>();
+    
+    // Shared hot upstreams for all watch subscribers
+    private Multi<CatalogSnapshot> serviceUpdates;
+    private Multi<CatalogSnapshot> moduleUpdates;
+    
     /**
      * List all services (non-modules)
      */
     public Uni<ServiceListResponse> listServices() {
-        return consulClient.catalogServices()
-            .flatMap(services -> {
-                if (services == null || services.getList() == null || services.getList().isEmpty()) {
-                    return Uni.createFrom().item(buildEmptyServiceList());
-                }
-                
-                // Get health info for each service
-                List<Uni<List<ServiceDetails>>> serviceUnis = services.getList().stream()
-                    .map(service -> consulClient.healthServiceNodes(service.getName(), true)
-                        .map(healthNodes -> {
-                            if (healthNodes == null || healthNodes.getList() == null) {
-                                return Collections.<ServiceDetails>emptyList();
-                            }
-                            return healthNodes.getList().stream()
-                                .filter(entry -> !isModule(entry.getService().getTags()))
-                                .map(this::convertToServiceDetails)
-                                .collect(Collectors.toList());
-                        })
-                        .onFailure().recoverWithItem(Collections.<ServiceDetails>emptyList())
-                    )
-                    .collect(Collectors.toList());
-                
-                return Uni.join().all(serviceUnis).andCollectFailures()
-                    .map(lists -> {
-                        List<ServiceDetails> allServices = lists.stream()
-                            .flatMap(List::stream)
-                            .collect(Collectors.toList());
-                        
-                        return ServiceListResponse.newBuilder()
-                            .addAllServices(allServices)
-                            .setAsOf(createTimestamp())
-                            .setTotalCount(allServices.size())
-                            .build();
-                    });
-            })
-            .onFailure().recoverWithItem(throwable -> {
-                LOG.error("Failed to list services from Consul", throwable);
-                return buildEmptyServiceList();
-            });
+        return readCatalog()
+            .map(read -> framesFor(read.snapshot()).services(read.asOfMillis()));
     }
     
     /**
      * List all modules
      */
     public Uni<ModuleListResponse> listModules() {
-        return consulClient.catalogServices()
+        return readCatalog()
+            .map(read -> framesFor(read.snapshot()).modules(read.asOfMillis()));
+    }
+    
+    /**
+     * One page of the service list. {@code total_count} still reports the whole catalog.
+     */
+    public Uni<ListPage<ServiceListResponse>> listServices(PageRequest page) {
+        return listServices(page, CatalogFilter.ALL, FieldProjection.ALL);
+    }
+    
+    /**
+     * Services matching {@code filter}, one page at a time when {@code page} is given or all
+     * at once otherwise, with only the fields {@code projection} keeps.
+     * {@code total_count} reports every match, not just this page.
+     */
+    public Uni<ListPage<ServiceListResponse>> listServices(PageRequest page, CatalogFilter filter,
+                                                           FieldProjection projection) {
+        return readCatalog(filter).map(read -> {
+            View<ServiceDetails> view = view(read.snapshot().services(),
+                framesFor(read.snapshot()).serviceDetails(projection), filter);
+            PageBounds bounds = pageBounds(read.snapshot(), view.instances(), page);
+            ServiceListResponse response = ServiceListResponse.newBuilder()
+                .addAllServices(view.details().subList(bounds.start(), bounds.end()))
+                .setAsOf(timestampOf(read.asOfMillis()))
+                .setTotalCount(view.details().size())
+                .build();
+            return new ListPage<>(response, bounds.nextCursor());
+        });
+    }
+    
+    /**
+     * One page of the module list. {@code total_count} still reports the whole catalog.
+     */
+    public Uni<ListPage<ModuleListResponse>> listModules(PageRequest page) {
+        return listModules(page, CatalogFilter.ALL, FieldProjection.ALL);
+    }
+    
+    /**
+     * Modules matching {@code filter}, one page at a time when {@code page} is given or all
+     * at once otherwise, with only the fields {@code projection} keeps.
+     * {@code total_count} reports every match, not just this page.
+     */
+    public Uni<ListPage<ModuleListResponse>> listModules(PageRequest page, CatalogFilter filter,
+                                                         FieldProjection projection) {
+        return readCatalog(filter).map(read -> {
+            View<ModuleDetails> view = view(read.snapshot().modules(),
+                framesFor(read.snapshot()).moduleDetails(projection), filter);
+            PageBounds bounds = pageBounds(read.snapshot(), view.instances(), page);
+            ModuleListResponse response = ModuleListResponse.newBuilder()
+                .addAllModules(view.details().subList(bounds.start(), bounds.end()))
+                .setAsOf(timestampOf(read.asOfMillis()))
+                .setTotalCount(view.details().size())
+                .build();
+            return new ListPage<>(response, bounds.nextCursor());
+        });
+    }
+    
+    /**
+     * The instances passing {@code filter}, with their already-converted details
+     */
+    private static <D> View<D> view(List<CatalogInstance> instances, List<D> details, CatalogFilter filter) {
+        if (filter.matchesAll()) {
+            return new View<>(instances, details);
+        }
+        List<CatalogInstance> kept = new ArrayList<>();
+        List<D> keptDetails = new ArrayList<>();
+        for (int i = 0; i < instances.size(); i++) {
+            if (filter.test(instances.get(i))) {
+                kept.add(instances.get(i));
+                keptDetails.add(details.get(i));
+            }
+        }
+        return new View<>(kept, keptDetails);
+    }
+    
+    private PageBounds pageBounds(CatalogSnapshot snapshot, List<CatalogInstance> instances, PageRequest page) {
+        if (page == null) {
+            return new PageBounds(0, instances.size(), null);
+        }
+        int size = Math.max(1, Math.min(page.pageSize(), maxPageSize));
+        int start = 0;
+        if (page.cursor() != null && !page.cursor().isEmpty()) {
+            PageCursor cursor;
+            try {
+                cursor = PageCursor.decode(page.cursor());
+            } catch (IllegalArgumentException e) {
+                throw new io.grpc.StatusRuntimeException(
+                    io.grpc.Status.INVALID_ARGUMENT.withDescription(e.getMessage()));
+            }
+            if (cursor.version() != snapshot.version()) {
+                LOG.debugf("Page cursor from catalog version %d resumed on version %d",
+                    cursor.version(), snapshot.version());
+            }
+            start = firstAfter(instances, cursor);
+        }
+        int end = Math.min(instances.size(), start + size);
+        String next = end < instances.size()
+            ? PageCursor.after(snapshot.version(), instances.get(end - 1)).encode()
+            : null;
+        return new PageBounds(start, end, next);
+    }
+    
+    /**
+     * Index of the first instance after the cursor; instances are sorted by {@link PageCursor#ORDER}
+     */
+    private static int firstAfter(List<CatalogInstance> instances, PageCursor cursor) {
+        int low = 0;
+        int high = instances.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cursor.precedes(instances.get(mid))) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * The catalog to answer a read from: a cached one when usable, otherwise a fresh fetch
+     * from Consul, falling back to the last good catalog if that fetch fails
+     */
+    private Uni<CatalogRead> readCatalog(CatalogFilter filter) {
+        if (filter.matchesAll() || cachedCatalog().isPresent()) {
+            return readCatalog();
+        }
+        // Going to Consul anyway: skip the services the filter rules out before fetching their instances
+        return fetchCatalogFromConsul(filter::mayMatchService)
+            .map(catalog -> new CatalogRead(catalog, catalog.builtAtMillis()))
+            .onFailure().recoverWithUni(this::staleCatalog);
+    }
+    
+    private Uni<CatalogRead> readCatalog() {
+        Optional<CatalogRead> cached = cachedCatalog();
+        if (cached.isPresent()) {
+            return Uni.createFrom().item(cached.get());
+        }
+        return fetchCatalog()
+            .map(catalog -> new CatalogRead(catalog, catalog.builtAtMillis()))
+            .onFailure().recoverWithUni(this::staleCatalog);
+    }
+    
+    /**
+     * A catalog that can be served without calling Consul: the engine snapshot while Consul
+     * has answered within the maximum stale age, or the last good fetched catalog while
+     * Consul is known to be down and a background refresh is retrying
+     */
+    private Optional<CatalogRead> cachedCatalog() {
+        long now = System.currentTimeMillis();
+        Optional<CatalogSnapshot> snapshot = catalogEngine.current();
+        if (snapshot.isPresent()) {
+            long asOf = catalogEngine.lastContactMillis();
+            if (now - asOf <= maxStaleAge.toMillis()) {
+                return Optional.of(new CatalogRead(snapshot.get(), asOf));
+            }
+        }
+        CatalogSnapshot lastGood = lastGoodCatalog.get();
+        if (consulDown && lastGood != null && now - lastGood.builtAtMillis() <= maxStaleAge.toMillis()) {
+            return Optional.of(new CatalogRead(lastGood, lastGood.builtAtMillis()));
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Serve the last good catalog after a failed Consul read, or fail with UNAVAILABLE once
+     * it is older than the maximum stale age; an empty answer would be wrong, not just old
+     */
+    private Uni<CatalogRead> staleCatalog(Throwable failure) {
+        CatalogSnapshot lastGood = lastGoodCatalog.get();
+        if (lastGood != null && lastGood.ageMillis() <= maxStaleAge.toMillis()) {
+            LOG.warnf("Consul read failed (%s); serving catalog from %d ms ago",
+                failure.getMessage(), lastGood.ageMillis());
+            return Uni.createFrom().item(new CatalogRead(lastGood, lastGood.builtAtMillis()));
+        }
+        LOG.error("Consul read failed and no catalog within the maximum stale age is available", failure);
+        return Uni.createFrom().failure(new io.grpc.StatusRuntimeException(
+            io.grpc.Status.UNAVAILABLE
+                .withDescription("Service catalog unavailable: " + failure.getMessage())
+                .withCause(failure)));
+    }
+    
+    /**
+     * Fetch the whole catalog from Consul in one pass, for use while no snapshot is available.
+     * Concurrent callers share a single in-flight fetch, so listing services and modules at
+     * the same time costs one fan-out rather than two.
+     */
+    Uni<CatalogSnapshot> fetchCatalog() {
+        return Uni.createFrom().deferred(() -> {
+            CompletableFuture<CatalogSnapshot> existing = catalogFetch.get();
+            if (existing != null) {
+                return Uni.createFrom().completionStage(existing);
+            }
+            CompletableFuture<CatalogSnapshot> fetch = new CompletableFuture<>();
+            if (!catalogFetch.compareAndSet(null, fetch)) {
+                return fetchCatalog();
+            }
+            fetchCatalogFromConsul((name, tags) -> true).subscribe().with(
+                catalog -> {
+                    lastGoodCatalog.set(catalog);
+                    if (consulDown) {
+                        consulDown = false;
+                        LOG.info("Consul catalog reachable again");
+                    }
+                    catalogFetch.compareAndSet(fetch, null);
+                    fetch.complete(catalog);
+                },
+                failure -> {
+                    consulDown = true;
+                    scheduleBackgroundRefresh();
+                    catalogFetch.compareAndSet(fetch, null);
+                    fetch.completeExceptionally(failure);
+                });
+            return Uni.createFrom().completionStage(fetch);
+        });
+    }
+    
+    /**
+     * Keep retrying the catalog fetch off the request path while Consul is down, so that
+     * readers are served the last good catalog instead of waiting on failing calls
+     */
+    private void scheduleBackgroundRefresh() {
+        if (!backgroundRefresh.compareAndSet(false, true)) {
+            return;
+        }
+        vertx.setTimer(retryDelay.toMillis(), id -> {
+            if (!consulDown) {
+                backgroundRefresh.set(false);
+                return;
+            }
+            fetchCatalog().subscribe().with(
+                catalog -> backgroundRefresh.set(false),
+                failure -> {
+                    backgroundRefresh.set(false);
+                    scheduleBackgroundRefresh();
+                });
+        });
+    }
+    
+    /**
+     * Forget the last good catalog and any Consul outage; used by tests
+     */
+    void resetFallbackCatalog() {
+        consulDown = false;
+        lastGoodCatalog.set(null);
+    }
+    
+    /**
+     * Fails if any service's instances cannot be read: a catalog missing those services would
+     * be a wrong answer, and must neither be served nor replace the last good catalog
+     * @param serviceFilter decides from a service's name and catalog tags whether its instances are needed
+     */
+    private Uni<CatalogSnapshot> fetchCatalogFromConsul(BiPredicate<String, List<String>> serviceFilter) {
+        return Uni.createFrom().deferred(consulClient::catalogServices)
             .flatMap(services -> {
                 if (services == null || services.getList() == null || services.getList().isEmpty()) {
-                    return Uni.createFrom().item(buildEmptyModuleList());
+                    return Uni.createFrom().item(CatalogSnapshot.of(0, 0, Map.of()));
                 }
                 
-                // Get health info for each service that is a module
-                List<Uni<List<ModuleDetails>>> moduleUnis = services.getList().stream()
-                    .map(service -> consulClient.healthServiceNodes(service.getName(), true)
+                // Get health info for each service, keeping the burst to Consul bounded
+                List<String> names = services.getList().stream()
+                    .filter(service -> serviceFilter.test(service.getName(), service.getTags()))
+                    .map(service -> service.getName())
+                    .distinct()
+                    .collect(Collectors.toList());
+                fanOutLimiter.recordFanOut(names.size());
+                List<Uni<List<CatalogInstance>>> instanceUnis = names.stream()
+                    .map(name -> fanOutLimiter.submit(() -> consulClient.healthServiceNodes(name, true))
                         .map(healthNodes -> {
                             if (healthNodes == null || healthNodes.getList() == null) {
-                                return Collections.<ModuleDetails>emptyList();
+                                return List.<CatalogInstance>of();
                             }
                             return healthNodes.getList().stream()
-                                .filter(entry -> isModule(entry.getService().getTags()))
-                                .map(this::convertToModuleDetails)
+                                .map(CatalogInstance::from)
                                 .collect(Collectors.toList());
                         })
-                        .onFailure().recoverWithItem(Collections.<ModuleDetails>emptyList())
                     )
                     .collect(Collectors.toList());
                 
-                return Uni.join().all(moduleUnis).andCollectFailures()
+                return Uni.join().all(instanceUnis).andCollectFailures()
                     .map(lists -> {
-                        List<ModuleDetails> allModules = lists.stream()
-                            .flatMap(List::stream)
-                            .collect(Collectors.toList());
-                        
-                        return ModuleListResponse.newBuilder()
-                            .addAllModules(allModules)
-                            .setAsOf(createTimestamp())
-                            .setTotalCount(allModules.size())
-                            .build();
+                        Map<String, List<CatalogInstance>> byName = new HashMap<>();
+                        for (int i = 0; i < names.size(); i++) {
+                            if (!lists.get(i).isEmpty()) {
+                                byName.put(names.get(i), lists.get(i));
+                            }
+                        }
+                        return CatalogSnapshot.of(0, services.getIndex(), byName);
                     });
-            })
-            .onFailure().recoverWithItem(throwable -> {
-                LOG.error("Failed to list modules from Consul", throwable);
-                return buildEmptyModuleList();
             });
     }
     
@@ -118,15 +409,15 @@ public class ServiceDiscoveryHandler {
      * Get service by name (returns first healthy instance)
      */
     public Uni<ServiceDetails> getServiceByName(String serviceName) {
-        return consulClient.healthServiceNodes(serviceName, true)
-            .map(serviceEntries -> {
-                if (serviceEntries == null || serviceEntries.getList() == null || serviceEntries.getList().isEmpty()) {
+        return instancesOf(serviceName)
+            .map(instances -> {
+                if (instances.isEmpty()) {
                     throw new io.grpc.StatusRuntimeException(
                         io.grpc.Status.NOT_FOUND.withDescription("Service not found: " + serviceName)
                     );
                 }
                 // Return first healthy instance
-                return convertToServiceDetails(serviceEntries.getList().get(0));
+                return convertToServiceDetails(instances.get(0));
             });
     }
     
@@ -134,30 +425,14 @@ public class ServiceDiscoveryHandler {
      * Get service by ID
      */
     public Uni<ServiceDetails> getServiceById(String serviceId) {
-        // Consul doesn't have a direct "get by ID" so we need to extract service name and search
-        String serviceName = extractServiceNameFromId(serviceId);
-        if (serviceName == null) {
-            return Uni.createFrom().failure(new io.grpc.StatusRuntimeException(
-                io.grpc.Status.INVALID_ARGUMENT.withDescription("Invalid service ID format: " + serviceId)
-            ));
-        }
-        
-        return consulClient.healthServiceNodes(serviceName, true)
-            .map(serviceEntries -> {
-                if (serviceEntries == null || serviceEntries.getList() == null) {
+        return instanceById(serviceId)
+            .map(instance -> {
+                if (instance == null) {
                     throw new io.grpc.StatusRuntimeException(
-                        io.grpc.Status.NOT_FOUND.withDescription("Service not found: " + serviceId)
+                        io.grpc.Status.NOT_FOUND.withDescription("Service instance not found: " + serviceId)
                     );
                 }
-                
-                var entry = serviceEntries.getList().stream()
-                    .filter(e -> serviceId.equals(e.getService().getId()))
-                    .findFirst()
-                    .orElseThrow(() -> new io.grpc.StatusRuntimeException(
-                        io.grpc.Status.NOT_FOUND.withDescription("Service instance not found: " + serviceId)
-                    ));
-                
-                return convertToServiceDetails(entry);
+                return convertToServiceDetails(instance);
             });
     }
     
@@ -165,22 +440,17 @@ public class ServiceDiscoveryHandler {
      * Get module by name
      */
     public Uni<ModuleDetails> getModuleByName(String moduleName) {
-        return consulClient.healthServiceNodes(moduleName, true)
-            .map(serviceEntries -> {
-                if (serviceEntries == null || serviceEntries.getList() == null || serviceEntries.getList().isEmpty()) {
-                    throw new io.grpc.StatusRuntimeException(
-                        io.grpc.Status.NOT_FOUND.withDescription("Module not found: " + moduleName)
-                    );
-                }
+        return instancesOf(moduleName)
+            .map(instances -> {
                 // Return first healthy instance that is tagged as module
-                var moduleEntry = serviceEntries.getList().stream()
-                    .filter(entry -> isModule(entry.getService().getTags()))
+                var moduleInstance = instances.stream()
+                    .filter(CatalogInstance::module)
                     .findFirst()
                     .orElseThrow(() -> new io.grpc.StatusRuntimeException(
                         io.grpc.Status.NOT_FOUND.withDescription("Module not found: " + moduleName)
                     ));
                 
-                return convertToModuleDetails(moduleEntry);
+                return convertToModuleDetails(moduleInstance);
             });
     }
     
@@ -188,29 +458,14 @@ public class ServiceDiscoveryHandler {
      * Get module by ID
      */
     public Uni<ModuleDetails> getModuleById(String moduleId) {
-        String moduleName = extractServiceNameFromId(moduleId);
-        if (moduleName == null) {
-            return Uni.createFrom().failure(new io.grpc.StatusRuntimeException(
-                io.grpc.Status.INVALID_ARGUMENT.withDescription("Invalid module ID format: " + moduleId)
-            ));
-        }
-        
-        return consulClient.healthServiceNodes(moduleName, true)
-            .map(serviceEntries -> {
-                if (serviceEntries == null || serviceEntries.getList() == null) {
+        return instanceById(moduleId)
+            .map(instance -> {
+                if (instance == null || !instance.module()) {
                     throw new io.grpc.StatusRuntimeException(
-                        io.grpc.Status.NOT_FOUND.withDescription("Module not found: " + moduleId)
+                        io.grpc.Status.NOT_FOUND.withDescription("Module instance not found: " + moduleId)
                     );
                 }
-                
-                var entry = serviceEntries.getList().stream()
-                    .filter(e -> moduleId.equals(e.getService().getId()) && isModule(e.getService().getTags()))
-                    .findFirst()
-                    .orElseThrow(() -> new io.grpc.StatusRuntimeException(
-                        io.grpc.Status.NOT_FOUND.withDescription("Module instance not found: " + moduleId)
-                    ));
-                
-                return convertToModuleDetails(entry);
+                return convertToModuleDetails(instance);
             });
     }
     
@@ -218,184 +473,281 @@ public class ServiceDiscoveryHandler {
      * Resolve service to find the best available instance
      */
     public Uni<ServiceResolveResponse> resolveService(ServiceResolveRequest request) {
+        return resolveService(request, ResolveOptions.defaults());
+    }
+    
+    /**
+     * Resolve service, choosing among matching instances with the given balancing preferences
+     */
+    public Uni<ServiceResolveResponse> resolveService(ServiceResolveRequest request, ResolveOptions options) {
+        return resolveWithCandidates(request, options).map(Resolution::response);
+    }
+    
+    /**
+     * Resolve service, also ranking up to {@code options.candidates()} instances in the order
+     * a client should fail over to them. The first candidate is the selected instance.
+     */
+    public Uni<Resolution> resolveWithCandidates(ServiceResolveRequest request, ResolveOptions options) {
         String serviceName = request.getServiceName();
         
-        return consulClient.healthServiceNodes(serviceName, true)
-            .map(serviceEntries -> {
-                ServiceResolveResponse.Builder responseBuilder = ServiceResolveResponse.newBuilder()
-                    .setServiceName(serviceName)
-                    .setResolvedAt(createTimestamp());
-                
-                if (serviceEntries == null || serviceEntries.getList() == null || serviceEntries.getList().isEmpty()) {
-                    // No healthy instances found
-                    return responseBuilder
-                        .setFound(false)
-                        .setTotalInstances(0)
-                        .setHealthyInstances(0)
-                        .setSelectionReason("No healthy instances found")
-                        .build();
-                }
-                
-                List<io.vertx.ext.consul.ServiceEntry> healthyInstances = serviceEntries.getList();
-                
-                // Filter by required tags if specified
-                if (!request.getRequiredTagsList().isEmpty()) {
-                    healthyInstances = healthyInstances.stream()
-                        .filter(entry -> {
-                            List<String> serviceTags = entry.getService().getTags();
-                            if (serviceTags == null) return false;
-                            return serviceTags.containsAll(request.getRequiredTagsList());
-                        })
-                        .collect(Collectors.toList());
-                }
-                
-                // Filter by required capabilities if specified
-                if (!request.getRequiredCapabilitiesList().isEmpty()) {
-                    healthyInstances = healthyInstances.stream()
-                        .filter(entry -> {
-                            List<String> serviceTags = entry.getService().getTags();
-                            if (serviceTags == null) return false;
-                            // Capabilities are stored as "capability:xxx" tags
-                            Set<String> capabilities = serviceTags.stream()
-                                .filter(tag -> tag.startsWith("capability:"))
-                                .map(tag -> tag.substring("capability:".length()))
-                                .collect(Collectors.toSet());
-                            return capabilities.containsAll(request.getRequiredCapabilitiesList());
-                        })
-                        .collect(Collectors.toList());
-                }
-                
-                if (healthyInstances.isEmpty()) {
-                    // No instances match the criteria
-                    return responseBuilder
-                        .setFound(false)
-                        .setTotalInstances(serviceEntries.getList().size())
-                        .setHealthyInstances(serviceEntries.getList().size())
-                        .setSelectionReason("No instances match the required criteria")
-                        .build();
-                }
-                
-                // Select the best instance
-                io.vertx.ext.consul.ServiceEntry selectedInstance = null;
-                String selectionReason = "";
-                
-                if (request.getPreferLocal()) {
-                    // Try to find an instance on localhost first
-                    Optional<io.vertx.ext.consul.ServiceEntry> localInstance = healthyInstances.stream()
-                        .filter(entry -> "localhost".equals(entry.getService().getAddress()) || 
-                                        "127.0.0.1".equals(entry.getService().getAddress()))
-                        .findFirst();
-                    
-                    if (localInstance.isPresent()) {
-                        selectedInstance = localInstance.get();
-                        selectionReason = "Selected local instance as requested";
-                    }
+        return indexOf(serviceName)
+            .map(index -> resolve(request, index, options))
+            .onFailure().recoverWithItem(throwable -> new Resolution(resolveFailure(serviceName, throwable), List.of()));
+    }
+    
+    /**
+     * Resolve many services in one call, answering in request order, each with up to
+     * {@code options.candidates()} failover candidates.
+     * Each distinct service name is looked up once, concurrently, however often it is requested.
+     */
+    public Uni<List<Resolution>> resolveServices(List<ServiceResolveRequest> requests, ResolveOptions options) {
+        if (requests.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        
+        List<String> names = requests.stream()
+            .map(ServiceResolveRequest::getServiceName)
+            .distinct()
+            .collect(Collectors.toList());
+        
+        boolean fromConsul = cachedCatalog().isEmpty();
+        if (fromConsul) {
+            fanOutLimiter.recordFanOut(names.size());
+        }
+        List<Uni<Lookup>> lookups = names.stream()
+            .map(name -> (fromConsul ? fanOutLimiter.submit(() -> indexOf(name)) : indexOf(name))
+                .map(index -> new Lookup(index, null))
+                .onFailure().recoverWithItem(throwable -> new Lookup(null, throwable)))
+            .collect(Collectors.toList());
+        
+        return Uni.join().all(lookups).andFailFast()
+            .map(results -> {
+                Map<String, Lookup> byName = new HashMap<>();
+                for (int i = 0; i < names.size(); i++) {
+                    byName.put(names.get(i), results.get(i));
                 }
                 
-                if (selectedInstance == null) {
-                    // Use round-robin or random selection
-                    // For now, just pick the first one (could be enhanced with load balancing)
-                    selectedInstance = healthyInstances.get(0);
-                    selectionReason = "Selected first available healthy instance";
+                List<Resolution> resolutions = new ArrayList<>(requests.size());
+                for (ServiceResolveRequest request : requests) {
+                    Lookup lookup = byName.get(request.getServiceName());
+                    resolutions.add(lookup.failure() == null
+                        ? resolve(request, lookup.index(), options)
+                        : new Resolution(resolveFailure(request.getServiceName(), lookup.failure()), List.of()));
                 }
-                
-                var service = selectedInstance.getService();
-                responseBuilder
-                    .setFound(true)
-                    .setHost(service.getAddress())
-                    .setPort(service.getPort())
-                    .setServiceId(service.getId())
-                    .setTotalInstances(serviceEntries.getList().size())
-                    .setHealthyInstances(healthyInstances.size())
-                    .setSelectionReason(selectionReason);
-                
-                // Add metadata
-                if (service.getMeta() != null) {
-                    responseBuilder.putAllMetadata(service.getMeta());
-                    if (service.getMeta().containsKey("version")) {
-                        responseBuilder.setVersion(service.getMeta().get("version"));
-                    }
+                LOG.debugf("Batch resolved %d requests with %d lookups", requests.size(), names.size());
+                return resolutions;
+            });
+    }
+    
+    private ServiceResolveResponse resolveFailure(String serviceName, Throwable throwable) {
+        LOG.errorf(throwable, "Failed to resolve service: %s", serviceName);
+        return ServiceResolveResponse.newBuilder()
+            .setFound(false)
+            .setServiceName(serviceName)
+            .setSelectionReason("Error resolving service: " + throwable.getMessage())
+            .setResolvedAt(createTimestamp())
+            .build();
+    }
+    
+    /**
+     * Healthy instances of a service, from a cached catalog when usable or from Consul otherwise
+     */
+    private Uni<List<CatalogInstance>> instancesOf(String serviceName) {
+        Optional<CatalogRead> cached = cachedCatalog();
+        if (cached.isPresent()) {
+            return Uni.createFrom().item(cached.get().snapshot().instances(serviceName));
+        }
+        
+        return consulClient.healthServiceNodes(serviceName, true)
+            .map(serviceEntries -> {
+                if (serviceEntries == null || serviceEntries.getList() == null) {
+                    return List.<CatalogInstance>of();
                 }
-                
-                // Add tags and capabilities
-                if (service.getTags() != null) {
-                    for (String tag : service.getTags()) {
-                        if (tag.startsWith("capability:")) {
-                            responseBuilder.addCapabilities(tag.substring("capability:".length()));
-                        } else {
-                            responseBuilder.addTags(tag);
-                        }
-                    }
+                return serviceEntries.getList().stream()
+                    .map(CatalogInstance::from)
+                    .collect(Collectors.toList());
+            })
+            .onFailure().recoverWithUni(failure -> staleCatalog(failure)
+                .map(read -> read.snapshot().instances(serviceName)));
+    }
+    
+    /**
+     * Instance with the given Consul service ID, or {@code null}. IDs embed hosts that may
+     * themselves contain dashes, so the service name cannot be recovered from them; the
+     * lookup goes through the snapshot's ID index instead, with no Consul call while the
+     * catalog is cached. Without one, the instance's passing check names its service, and
+     * only that service is fetched.
+     */
+    private Uni<CatalogInstance> instanceById(String serviceId) {
+        Optional<CatalogRead> cached = cachedCatalog();
+        if (cached.isPresent()) {
+            return Uni.createFrom().item(cached.get().snapshot().instance(serviceId));
+        }
+        return consulClient.healthState(HealthState.PASSING)
+            .flatMap(checks -> {
+                String serviceName = serviceNameOf(checks, serviceId);
+                if (serviceName == null) {
+                    return Uni.createFrom().<CatalogInstance>nullItem();
                 }
-                
-                return responseBuilder.build();
+                return instancesOf(serviceName).map(instances -> instances.stream()
+                    .filter(instance -> serviceId.equals(instance.serviceId()))
+                    .findFirst()
+                    .orElse(null));
             })
-            .onFailure().recoverWithItem(throwable -> {
-                LOG.errorf(throwable, "Failed to resolve service: %s", serviceName);
-                return ServiceResolveResponse.newBuilder()
-                    .setFound(false)
-                    .setServiceName(serviceName)
-                    .setSelectionReason("Error resolving service: " + throwable.getMessage())
-                    .setResolvedAt(createTimestamp())
-                    .build();
-            });
+            .onFailure().recoverWithUni(failure -> staleCatalog(failure)
+                .map(read -> read.snapshot().instance(serviceId)));
     }
     
-    private ServiceDetails convertToServiceDetails(io.vertx.ext.consul.ServiceEntry entry) {
-        var service = entry.getService();
-        ServiceDetails.Builder builder = ServiceDetails.newBuilder()
-            .setServiceId(service.getId())
-            .setServiceName(service.getName())
-            .setHost(service.getAddress())
-            .setPort(service.getPort())
-            .setIsHealthy(true); // Only healthy services are returned by default
-        
-        // Extract metadata
-        if (service.getMeta() != null) {
-            builder.putAllMetadata(service.getMeta());
-            if (service.getMeta().containsKey("version")) {
-                builder.setVersion(service.getMeta().get("version"));
+    private static String serviceNameOf(CheckList checks, String serviceId) {
+        if (checks == null || checks.getList() == null) {
+            return null;
+        }
+        for (Check check : checks.getList()) {
+            if (serviceId.equals(check.getServiceId())) {
+                return check.getServiceName();
             }
         }
+        return null;
+    }
+    
+    /**
+     * Where the caller runs. With a cached catalog, callers that are registered themselves
+     * also get the zone and rack of their own instances.
+     */
+    private Locality callerLocality(String clientAddress) {
+        if (clientAddress == null) {
+            return Locality.UNKNOWN;
+        }
+        return cachedCatalog()
+            .map(read -> read.snapshot().locate(clientAddress))
+            .orElseGet(() -> Locality.ofAddress(clientAddress));
+    }
+    
+    /**
+     * Tag and capability index of a service; prebuilt with the snapshot, or built from Consul's answer
+     */
+    private Uni<InstanceIndex> indexOf(String serviceName) {
+        Optional<CatalogRead> cached = cachedCatalog();
+        if (cached.isPresent()) {
+            return Uni.createFrom().item(cached.get().snapshot().index(serviceName));
+        }
+        return instancesOf(serviceName).map(InstanceIndex::of);
+    }
+    
+    private Resolution resolve(ServiceResolveRequest request, InstanceIndex index, ResolveOptions options) {
+        List<CatalogInstance> instances = index.instances();
+        ServiceResolveResponse.Builder responseBuilder = ServiceResolveResponse.newBuilder()
+            .setServiceName(request.getServiceName())
+            .setResolvedAt(createTimestamp());
         
-        // Extract tags and capabilities
-        if (service.getTags() != null) {
-            for (String tag : service.getTags()) {
-                if (tag.startsWith("capability:")) {
-                    builder.addCapabilities(tag.substring("capability:".length()));
-                } else {
-                    builder.addTags(tag);
-                }
+        if (instances.isEmpty()) {
+            // No healthy instances found
+            return new Resolution(responseBuilder
+                .setFound(false)
+                .setTotalInstances(0)
+                .setHealthyInstances(0)
+                .setSelectionReason("No healthy instances found")
+                .build(), List.of());
+        }
+        
+        // Required tags and capabilities are intersected on the index, no per-instance scans
+        List<CatalogInstance> healthyInstances = options.filter()
+            .apply(index.matching(request.getRequiredTagsList(), request.getRequiredCapabilitiesList()));
+        
+        if (healthyInstances.isEmpty()) {
+            // No instances match the criteria
+            return new Resolution(responseBuilder
+                .setFound(false)
+                .setTotalInstances(instances.size())
+                .setHealthyInstances(instances.size())
+                .setSelectionReason("No instances match the required criteria")
+                .build(), List.of());
+        }
+        
+        // Select the best instance
+        List<CatalogInstance> pool = healthyInstances;
+        InstanceIndex.Nearest nearest = null;
+        if (request.getPreferLocal()) {
+            // Balance among the instances nearest the caller: same host, rack, subnet, then zone
+            nearest = index.nearest(healthyInstances, callerLocality(options.clientAddress()));
+            if (nearest != null) {
+                pool = nearest.instances();
             }
         }
         
-        builder.setRegisteredAt(createTimestamp());
-        builder.setLastHealthCheck(createTimestamp());
+        InstanceSelector.Selection selection = instanceSelector.select(request.getServiceName(), pool, options);
+        CatalogInstance selectedInstance = selection.instance();
+        String selectionReason = nearest == null ? selection.reason()
+            : String.format("Selected %s-local instance (%d of %d nearby): %s",
+                nearest.tier().name().toLowerCase(Locale.ROOT), pool.size(), healthyInstances.size(), selection.reason());
         
-        return builder.build();
+        List<CatalogInstance> candidates = List.of(selectedInstance);
+        if (options.candidates() > 1) {
+            candidates = rankCandidates(request.getServiceName(), selection, pool, healthyInstances, options);
+        }
+        
+        responseBuilder
+            .setFound(true)
+            .setHost(selectedInstance.host())
+            .setPort(selectedInstance.port())
+            .setServiceId(selectedInstance.serviceId())
+            .setTotalInstances(instances.size())
+            .setHealthyInstances(healthyInstances.size())
+            .setSelectionReason(selectionReason)
+            .putAllMetadata(selectedInstance.metadata())
+            .addAllCapabilities(selectedInstance.capabilities());
+        
+        if (selectedInstance.version() != null) {
+            responseBuilder.setVersion(selectedInstance.version());
+        }
+        
+        // Add tags (capabilities are carried separately)
+        for (String tag : selectedInstance.tags()) {
+            if (!tag.startsWith(CatalogInstance.CAPABILITY_PREFIX)) {
+                responseBuilder.addTags(tag);
+            }
+        }
+        
+        return new Resolution(responseBuilder.build(), candidates);
     }
     
-    private ModuleDetails convertToModuleDetails(io.vertx.ext.consul.ServiceEntry entry) {
-        var service = entry.getService();
-        ModuleDetails.Builder builder = ModuleDetails.newBuilder()
-            .setServiceId(service.getId())
-            .setModuleName(service.getName())
-            .setHost(service.getAddress())
-            .setPort(service.getPort())
-            .setIsHealthy(true);
-        
-        // Extract metadata
-        if (service.getMeta() != null) {
-            builder.putAllMetadata(service.getMeta());
-            if (service.getMeta().containsKey("version")) {
-                builder.setVersion(service.getMeta().get("version"));
-            }
-            // Extract module-specific fields from metadata
-            if (service.getMeta().containsKey("input-format")) {
-                builder.setInputFormat(service.getMeta().get("input-format"));
-            }
-            if (service.getMeta().containsKey("output-format")) {
-                builder.setOutputFormat(service.getMeta().get("output-format"));
+    /**
+     * Failover order: the selection, then the rest of its pool, then, when the pool was the
+     * caller's locality tier, the remaining matches, each ranked by the selection's strategy
+     */
+    private List<CatalogInstance> rankCandidates(String serviceName, InstanceSelector.Selection selection,
+                                                 List<CatalogInstance> pool, List<CatalogInstance> healthyInstances,
+                                                 ResolveOptions options) {
+        List<CatalogInstance> ranked = instanceSelector.rank(serviceName, selection.instance(), selection.strategy(),
+            pool, options, options.candidates());
+        if (ranked.size() < options.candidates() && pool != healthyInstances) {
+            Set<CatalogInstance> near = Collections.newSetFromMap(new IdentityHashMap<>());
+            near.addAll(pool);
+            List<CatalogInstance> farther = healthyInstances.stream().filter(i -> !near.contains(i)).toList();
+            ranked.addAll(instanceSelector.rank(serviceName, null, selection.strategy(),
+                farther, options, options.candidates() - ranked.size()));
+        }
+        return ranked;
+    }
+    
+    private ServiceDetails convertToServiceDetails(CatalogInstance instance) {
+        ServiceDetails.Builder builder = ServiceDetails.newBuilder()
+            .setServiceId(instance.serviceId())
+            .setServiceName(instance.serviceName())
+            .setHost(instance.host())
+            .setPort(instance.port())
+            .setIsHealthy(true) // Only healthy services are returned by default
+            .putAllMetadata(instance.metadata())
+            .addAllCapabilities(instance.capabilities());
+        
+        if (instance.version() != null) {
+            builder.setVersion(instance.version());
+        }
+        
+        // Extract tags (capabilities are carried separately)
+        for (String tag : instance.tags()) {
+            if (!tag.startsWith(CatalogInstance.CAPABILITY_PREFIX)) {
+                builder.addTags(tag);
             }
         }
         
@@ -405,74 +757,135 @@ public class ServiceDiscoveryHandler {
         return builder.build();
     }
     
-    private boolean isModule(List<String> tags) {
-        return tags != null && tags.contains("module");
-    }
-    
-    private String extractServiceNameFromId(String serviceId) {
-        // Format: serviceName-host-port
-        int lastDash = serviceId.lastIndexOf('-');
-        if (lastDash == -1) return null;
+    private ModuleDetails convertToModuleDetails(CatalogInstance instance) {
+        Map<String, String> meta = instance.metadata();
+        ModuleDetails.Builder builder = ModuleDetails.newBuilder()
+            .setServiceId(instance.serviceId())
+            .setModuleName(instance.serviceName())
+            .setHost(instance.host())
+            .setPort(instance.port())
+            .setIsHealthy(true)
+            .putAllMetadata(meta);
         
-        String withoutPort = serviceId.substring(0, lastDash);
-        int secondLastDash = withoutPort.lastIndexOf('-');
-        if (secondLastDash == -1) return null;
+        if (instance.version() != null) {
+            builder.setVersion(instance.version());
+        }
+        // Extract module-specific fields from metadata
+        if (meta.containsKey("input-format")) {
+            builder.setInputFormat(meta.get("input-format"));
+        }
+        if (meta.containsKey("output-format")) {
+            builder.setOutputFormat(meta.get("output-format"));
+        }
+        
+        builder.setRegisteredAt(createTimestamp());
+        builder.setLastHealthCheck(createTimestamp());
         
-        return withoutPort.substring(0, secondLastDash);
+        return builder.build();
     }
     
-    private ServiceListResponse buildEmptyServiceList() {
-        return ServiceListResponse.newBuilder()
-            .setAsOf(createTimestamp())
-            .setTotalCount(0)
-            .build();
+    /**
+     * Shared list frames for a snapshot, converting its instances only the first time it is asked for
+     */
+    private ListFrames framesFor(CatalogSnapshot snapshot) {
+        ListFrames frames = listFrames.get();
+        if (frames == null || frames.snapshot != snapshot) {
+            frames = new ListFrames(snapshot);
+            listFrames.set(frames);
+        }
+        return frames;
     }
     
-    private ModuleListResponse buildEmptyModuleList() {
-        return ModuleListResponse.newBuilder()
-            .setAsOf(createTimestamp())
-            .setTotalCount(0)
-            .build();
+    /**
+     * When the data in a snapshot was last confirmed by Consul, for its as_of field
+     */
+    private long asOfMillis(CatalogSnapshot snapshot) {
+        return catalogEngine.isEnabled() ? catalogEngine.lastContactMillis() : snapshot.builtAtMillis();
     }
     
     private Timestamp createTimestamp() {
-        long millis = System.currentTimeMillis();
+        return timestampOf(System.currentTimeMillis());
+    }
+    
+    private static Timestamp timestampOf(long millis) {
         return Timestamp.newBuilder()
             .setSeconds(millis / 1000)
             .setNanos((int) ((millis % 1000) * 1_000_000))
             .build();
     }
     
+    /**
+     * Build the shared upstreams for watch streams. With the catalog engine running,
+     * updates are driven by snapshot changes; otherwise a single poller per catalog kind
+     * is shared by every watcher, so Consul load never depends on the number of watchers.
+     */
+    @PostConstruct
+    void initWatchStreams() {
+        // Both watch streams derive from one catalog source, so services and modules share
+        // a single upstream: engine snapshots, or one polled fetch when the engine is off
+        Multi<CatalogSnapshot> catalogUpdates;
+        if (catalogEngine.isEnabled()) {
+            catalogUpdates = catalogEngine.changes();
+        } else {
+            catalogUpdates = Multi.createFrom().ticks().every(FALLBACK_WATCH_INTERVAL)
+                .onOverflow().drop()
+                .onItem().transformToUniAndConcatenate(tick -> fetchCatalog()
+                    .onFailure().invoke(throwable -> LOG.warn("Failed to poll Consul catalog for watchers", throwable))
+                    .onFailure().recoverWithNull())
+                .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+        }
+        serviceUpdates = distinctBy(catalogUpdates, CatalogSnapshot::services)
+            .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+        moduleUpdates = distinctBy(catalogUpdates, CatalogSnapshot::modules)
+            .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+    }
+    
+    /**
+     * Drop snapshots whose view is unchanged from the previous one, tracked per subscription
+     */
+    private static <V> Multi<CatalogSnapshot> distinctBy(Multi<CatalogSnapshot> snapshots,
+                                                          Function<CatalogSnapshot, V> view) {
+        return Multi.createFrom().deferred(() -> {
+            AtomicReference<V> last = new AtomicReference<>();
+            return snapshots.select().where(snapshot -> {
+                V current = view.apply(snapshot);
+                return !current.equals(last.getAndSet(current));
+            });
+        });
+    }
+    
     /**
      * Watch for real-time updates to the list of all healthy services.
      * Sends an initial list immediately, then sends updates whenever services change.
      */
     public Multi<ServiceListResponse> watchServices() {
+        return watchServices(FieldProjection.ALL);
+    }
+
+    /**
+     * Service watch whose lists carry only the fields {@code projection} keeps. Watchers
+     * sending the same mask share the projected lists of each snapshot.
+     */
+    public Multi<ServiceListResponse> watchServices(FieldProjection projection) {
         LOG.info("Starting service watch stream");
 
-        // Send initial list immediately
-        Multi<ServiceListResponse> initialList = Multi.createFrom().uni(listServices())
+        // Computed on subscription, after the update stream is attached, so no change is missed
+        Multi<ServiceListResponse> initialList = Multi.createFrom().uni(Uni.createFrom().deferred(() -> readCatalog()
+                .map(read -> framesFor(read.snapshot()).services(read.asOfMillis(), projection))))
             .onItem().invoke(response ->
                 LOG.infof("Sending initial service list with %d services", response.getTotalCount())
             );
 
-        // Then poll for changes every 2 seconds
-        Multi<ServiceListResponse> updates = Multi.createFrom().ticks().every(Duration.ofSeconds(2))
-            .onItem().transformToUniAndConcatenate(tick -> listServices())
+        Multi<ServiceListResponse> updates = serviceUpdates
+            .map(snapshot -> framesFor(snapshot).services(asOfMillis(snapshot), projection))
             .onItem().invoke(response ->
                 LOG.debugf("Service watch update: %d services", response.getTotalCount())
-            )
-            .onFailure().invoke(throwable ->
-                LOG.error("Error during service watch", throwable)
-            )
-            .onFailure().recoverWithItem(throwable -> {
-                LOG.error("Recovering from error in service watch", throwable);
-                return buildEmptyServiceList();
-            });
+            );
 
-        // Combine initial list with ongoing updates
-        return Multi.createBy().concatenating()
-            .streams(initialList, updates)
+        // Slow watchers skip intermediate lists and always receive the latest one
+        return Multi.createBy().merging()
+            .streams(updates, initialList)
+            .onOverflow().dropPreviousItems()
             .onCompletion().invoke(() -> LOG.info("Service watch stream completed"))
             .onCancellation().invoke(() -> LOG.info("Service watch stream cancelled by client"));
     }
@@ -482,32 +895,344 @@ public class ServiceDiscoveryHandler {
      * Sends an initial list immediately, then sends updates whenever modules change.
      */
     public Multi<ModuleListResponse> watchModules() {
+        return watchModules(FieldProjection.ALL);
+    }
+
+    /**
+     * Module watch whose lists carry only the fields {@code projection} keeps
+     */
+    public Multi<ModuleListResponse> watchModules(FieldProjection projection) {
         LOG.info("Starting module watch stream");
 
-        // Send initial list immediately
-        Multi<ModuleListResponse> initialList = Multi.createFrom().uni(listModules())
+        // Computed on subscription, after the update stream is attached, so no change is missed
+        Multi<ModuleListResponse> initialList = Multi.createFrom().uni(Uni.createFrom().deferred(() -> readCatalog()
+                .map(read -> framesFor(read.snapshot()).modules(read.asOfMillis(), projection))))
             .onItem().invoke(response ->
                 LOG.infof("Sending initial module list with %d modules", response.getTotalCount())
             );
 
-        // Then poll for changes every 2 seconds
-        Multi<ModuleListResponse> updates = Multi.createFrom().ticks().every(Duration.ofSeconds(2))
-            .onItem().transformToUniAndConcatenate(tick -> listModules())
+        Multi<ModuleListResponse> updates = moduleUpdates
+            .map(snapshot -> framesFor(snapshot).modules(asOfMillis(snapshot), projection))
             .onItem().invoke(response ->
                 LOG.debugf("Module watch update: %d modules", response.getTotalCount())
-            )
-            .onFailure().invoke(throwable ->
-                LOG.error("Error during module watch", throwable)
-            )
-            .onFailure().recoverWithItem(throwable -> {
-                LOG.error("Recovering from error in module watch", throwable);
-                return buildEmptyModuleList();
-            });
+            );
 
-        // Combine initial list with ongoing updates
-        return Multi.createBy().concatenating()
-            .streams(initialList, updates)
+        // Slow watchers skip intermediate lists and always receive the latest one
+        return Multi.createBy().merging()
+            .streams(updates, initialList)
+            .onOverflow().dropPreviousItems()
             .onCompletion().invoke(() -> LOG.info("Module watch stream completed"))
             .onCancellation().invoke(() -> LOG.info("Module watch stream cancelled by client"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Delta-encoded service watch. The first frame is the full list (every entry tagged
+     * {@code catalog-change=snapshot}); later frames carry only added, changed and removed
+     * instances, removed ones with {@code is_healthy=false}. Every entry carries the
+     * {@code catalog-version} it belongs to. A client that reconnects with its highest seen
+     * version receives only the deltas it missed, or a fresh full frame if they are no longer
+     * journaled. {@code total_count} is always the size of the full list after the frame.
+     */
+    public Multi<ServiceListResponse> watchServiceDeltas(OptionalLong resumeVersion) {
+        if (!catalogEngine.isEnabled()) {
+            LOG.info("Delta service watch requested without the catalog engine; sending full lists");
+            return watchServices();
+        }
+        LOG.infof("Starting delta service watch stream (resume version: %s)", resumeVersion);
+        return deltaStream(new DeltaCursor(resumeVersion), CatalogSnapshot::services, CatalogChange::services,
+                this::buildServiceDeltaFrame)
+            .onCompletion().invoke(() -> LOG.info("Delta service watch stream completed"))
+            .onCancellation().invoke(() -> LOG.info("Delta service watch stream cancelled by client"));
+    }
+    
+    /**
+     * Delta-encoded module watch; same framing as {@link #watchServiceDeltas(OptionalLong)}
+     */
+    public Multi<ModuleListResponse> watchModuleDeltas(OptionalLong resumeVersion) {
+        if (!catalogEngine.isEnabled()) {
+            LOG.info("Delta module watch requested without the catalog engine; sending full lists");
+            return watchModules();
+        }
+        LOG.infof("Starting delta module watch stream (resume version: %s)", resumeVersion);
+        return deltaStream(new DeltaCursor(resumeVersion), CatalogSnapshot::modules, CatalogChange::modules,
+                this::buildModuleDeltaFrame)
+            .onCompletion().invoke(() -> LOG.info("Delta module watch stream completed"))
+            .onCancellation().invoke(() -> LOG.info("Delta module watch stream cancelled by client"));
+    }
+    
+    /**
+     * Every snapshot notification (and one immediately on subscription) triggers a catch-up
+     * from the cursor's last version against the engine journal, so frames never skip a
+     * change even if notifications are coalesced.
+     */
+    private <T> Multi<T> deltaStream(DeltaCursor cursor,
+                                     Function<CatalogSnapshot, List<CatalogInstance>> view,
+                                     Function<CatalogChange, CatalogDelta> deltaView,
+                                     Function<DeltaFrame, T> frameBuilder) {
+        Multi<Boolean> triggers = Multi.createBy().merging().streams(
+            catalogEngine.changes().map(snapshot -> Boolean.TRUE),
+            Multi.createFrom().item(Boolean.TRUE)
+        );
+        
+        return triggers
+            .onOverflow().dropPreviousItems()
+            .onItem().transformToMultiAndConcatenate(trigger -> {
+                Optional<T> frame = nextDeltaFrame(cursor, view, deltaView).map(frameBuilder);
+                return frame.isPresent() ? Multi.createFrom().item(frame.get()) : Multi.createFrom().<T>empty();
+            });
+    }
+    
+    private Optional<DeltaFrame> nextDeltaFrame(DeltaCursor cursor,
+                                               Function<CatalogSnapshot, List<CatalogInstance>> view,
+                                               Function<CatalogChange, CatalogDelta> deltaView) {
+        Optional<CatalogSnapshot> current = catalogEngine.current();
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        OptionalLong from = cursor.lastVersion != null ? OptionalLong.of(cursor.lastVersion) : cursor.resumeVersion;
+        if (from.isPresent()) {
+            Optional<List<CatalogChange>> missed = catalogEngine.changesSince(from.getAsLong());
+            if (missed.isPresent()) {
+                List<CatalogChange> changes = missed.get();
+                if (changes.isEmpty()) {
+                    cursor.lastVersion = from.getAsLong();
+                    return Optional.empty();
+                }
+                cursor.lastVersion = changes.get(changes.size() - 1).version();
+                
+                // Later changes to the same instance replace earlier ones
+                Map<String, DeltaEntry> entries = new LinkedHashMap<>();
+                int total = 0;
+                for (CatalogChange change : changes) {
+                    CatalogDelta delta = deltaView.apply(change);
+                    total = delta.total();
+                    delta.added().forEach(i -> entries.put(i.serviceId(), new DeltaEntry(i, CHANGE_ADDED, change.version())));
+                    delta.changed().forEach(i -> entries.put(i.serviceId(), new DeltaEntry(i, CHANGE_CHANGED, change.version())));
+                    delta.removed().forEach(i -> entries.put(i.serviceId(), new DeltaEntry(i, CHANGE_REMOVED, change.version())));
+                }
+                if (entries.isEmpty()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new DeltaFrame(new ArrayList<>(entries.values()), total));
+            }
+            LOG.debugf("Catalog version %d is not journaled; sending a full frame", from.getAsLong());
+        }
+        
+        CatalogSnapshot snapshot = current.get();
+        cursor.lastVersion = snapshot.version();
+        List<CatalogInstance> instances = view.apply(snapshot);
+        List<DeltaEntry> entries = new ArrayList<>(instances.size());
+        for (CatalogInstance instance : instances) {
+            entries.add(new DeltaEntry(instance, CHANGE_SNAPSHOT, snapshot.version()));
+        }
+        return Optional.of(new DeltaFrame(entries, instances.size()));
+    }
+    
+    private ServiceListResponse buildServiceDeltaFrame(DeltaFrame frame) {
+        ServiceListResponse.Builder builder = ServiceListResponse.newBuilder();
+        for (DeltaEntry entry : frame.entries()) {
+            ServiceDetails details = CHANGE_REMOVED.equals(entry.change())
+                ? ServiceDetails.newBuilder()
+                    .setServiceId(entry.instance().serviceId())
+                    .setServiceName(entry.instance().serviceName())
+                    .setHost(entry.instance().host())
+                    .setPort(entry.instance().port())
+                    .setIsHealthy(false)
+                    .build()
+                : convertToServiceDetails(entry.instance());
+            builder.addServices(details.toBuilder()
+                .putMetadata(CATALOG_CHANGE_KEY, entry.change())
+                .putMetadata(CATALOG_VERSION_KEY, Long.toString(entry.version())));
+        }
+        return builder
+            .setAsOf(createTimestamp())
+            .setTotalCount(frame.total())
+            .build();
+    }
+    
+    private ModuleListResponse buildModuleDeltaFrame(DeltaFrame frame) {
+        ModuleListResponse.Builder builder = ModuleListResponse.newBuilder();
+        for (DeltaEntry entry : frame.entries()) {
+            ModuleDetails details = CHANGE_REMOVED.equals(entry.change())
+                ? ModuleDetails.newBuilder()
+                    .setServiceId(entry.instance().serviceId())
+                    .setModuleName(entry.instance().serviceName())
+                    .setHost(entry.instance().host())
+                    .setPort(entry.instance().port())
+                    .setIsHealthy(false)
+                    .build()
+                : convertToModuleDetails(entry.instance());
+            builder.addModules(details.toBuilder()
+                .putMetadata(CATALOG_CHANGE_KEY, entry.change())
+                .putMetadata(CATALOG_VERSION_KEY, Long.toString(entry.version())));
+        }
+        return builder
+            .setAsOf(createTimestamp())
+            .setTotalCount(frame.total())
+            .build();
+    }
+    
+    /**
+     * Per-subscriber position in the catalog version sequence
+     */
+    private static final class DeltaCursor {
+        final OptionalLong resumeVersion;
+        volatile Long lastVersion;
+        
+        DeltaCursor(OptionalLong resumeVersion) {
+            this.resumeVersion = resumeVersion;
+        }
+    }
+    
+    private record DeltaEntry(CatalogInstance instance, String change, long version) {
+    }
+    
+    private record DeltaFrame(List<DeltaEntry> entries, int total) {
+    }
+    
+    /**
+     * List responses for one snapshot. Instances are converted to details and assembled into
+     * a response once per snapshot. When as_of moves to a new second the response is only
+     * re-stamped: the copy shares the already-built instance list, so Consul long-polls
+     * returning without a change never rebuild it. Callers within the same second receive
+     * the same immutable message object. The same holds per field mask: each mask projects the snapshot's
+     * details once.
+     */
+    private final class ListFrames {
+        final CatalogSnapshot snapshot;
+        final List<ServiceDetails> serviceDetails;
+        final List<ModuleDetails> moduleDetails;
+        final Map<FieldProjection, Projected<ServiceDetails, ServiceListResponse>> serviceProjections =
+            new ConcurrentHashMap<>();
+        final Map<FieldProjection, Projected<ModuleDetails, ModuleListResponse>> moduleProjections =
+            new ConcurrentHashMap<>();
+        
+        ListFrames(CatalogSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.serviceDetails = snapshot.services().stream()
+                .map(ServiceDiscoveryHandler.this::convertToServiceDetails)
+                .toList();
+            this.moduleDetails = snapshot.modules().stream()
+                .map(ServiceDiscoveryHandler.this::convertToModuleDetails)
+                .toList();
+        }
+        
+        List<ServiceDetails> serviceDetails(FieldProjection projection) {
+            return projected(serviceProjections, serviceDetails, projection).details();
+        }
+        
+        List<ModuleDetails> moduleDetails(FieldProjection projection) {
+            return projected(moduleProjections, moduleDetails, projection).details();
+        }
+        
+        ServiceListResponse services(long asOfMillis) {
+            return services(asOfMillis, FieldProjection.ALL);
+        }
+        
+        ServiceListResponse services(long asOfMillis, FieldProjection projection) {
+            Projected<ServiceDetails, ServiceListResponse> frame =
+                projected(serviceProjections, serviceDetails, projection);
+            ServiceListResponse cached = frame.response;
+            if (cached != null && cached.getAsOf().getSeconds() == asOfMillis / 1000) {
+                return cached;
+            }
+            ServiceListResponse base = frame.base;
+            if (base == null) {
+                base = ServiceListResponse.newBuilder()
+                    .addAllServices(frame.details())
+                    .setTotalCount(frame.details().size())
+                    .build();
+                frame.base = base;
+            }
+            ServiceListResponse built = base.toBuilder().setAsOf(timestampOf(asOfMillis)).build();
+            // Memoize the encoded size once rather than on every subscriber's first write
+            built.getSerializedSize();
+            frame.response = built;
+            return built;
+        }
+        
+        ModuleListResponse modules(long asOfMillis) {
+            return modules(asOfMillis, FieldProjection.ALL);
+        }
+        
+        ModuleListResponse modules(long asOfMillis, FieldProjection projection) {
+            Projected<ModuleDetails, ModuleListResponse> frame =
+                projected(moduleProjections, moduleDetails, projection);
+            ModuleListResponse cached = frame.response;
+            if (cached != null && cached.getAsOf().getSeconds() == asOfMillis / 1000) {
+                return cached;
+            }
+            ModuleListResponse base = frame.base;
+            if (base == null) {
+                base = ModuleListResponse.newBuilder()
+                    .addAllModules(frame.details())
+                    .setTotalCount(frame.details().size())
+                    .build();
+                frame.base = base;
+            }
+            ModuleListResponse built = base.toBuilder().setAsOf(timestampOf(asOfMillis)).build();
+            built.getSerializedSize();
+            frame.response = built;
+            return built;
+        }
+        
+        /**
+         * The details under {@code projection}, projected on first use. Past a handful of
+         * distinct masks per snapshot, further ones are projected per call instead of kept.
+         */
+        private <D extends Message, R> Projected<D, R> projected(
+                Map<FieldProjection, Projected<D, R>> cache, List<D> details, FieldProjection projection) {
+            Projected<D, R> frame = cache.get(projection);
+            if (frame != null) {
+                return frame;
+            }
+            if (cache.size() >= MAX_PROJECTIONS_PER_SNAPSHOT) {
+                return new Projected<>(projection.applyAll(details));
+            }
+            return cache.computeIfAbsent(projection, p -> new Projected<>(p.applyAll(details)));
+        }
+    }
+    
+    /**
+     * Details of one snapshot under one field mask, the list response built from them once,
+     * and its latest copy stamped with an as_of
+     */
+    private static final class Projected<D, R> {
+        private final List<D> details;
+        volatile R base;
+        volatile R response;
+        
+        Projected(List<D> details) {
+            this.details = details;
+        }
+        
+        List<D> details() {
+            return details;
+        }
+    }
+    
+    /**
+     * A resolve answer and the instances ranked for client-side failover, best first
+     */
+    public record Resolution(ServiceResolveResponse response, List<CatalogInstance> candidates) {
+    }
+    
+    private record View<D>(List<CatalogInstance> instances, List<D> details) {
+    }
+    
+    private record PageBounds(int start, int end, String nextCursor) {
+    }
+    
+    /**
+     * A catalog to answer from and the time Consul last confirmed it
+     */
+    private record CatalogRead(CatalogSnapshot snapshot, long asOfMillis) {
+    }
+    
+    /**
+     * Outcome of one de-duplicated lookup in a batch resolve
+     */
+    private record Lookup(InstanceIndex index, Throwable failure) {
+    }
+}
@@ -28,76 +28,92 @@ public class ServiceRegistrationHandler {
     @Inject
     OpenSearchEventsProducer openSearchProducer;
     
+    @Inject
+    RegistrationGuard registrationGuard;
+    
     /**
      * Register a service with streaming status updates
+     * Flow: Validate → Consul → Health → OpenSearch
+     * Cancelling the stream stops the flow; see {@link RegistrationGuard}.
      */
     public Multi<RegistrationEvent> registerService(ServiceRegistrationRequest request) {
         String serviceId = ConsulRegistrar.generateServiceId(request.getServiceName(), request.getHost(), request.getPort());
+        RegistrationGuard.Progress progress = new RegistrationGuard.Progress();
         
-        return Multi.createFrom().emitter(emitter -> {
-            // Emit STARTED event
-            emitter.emit(createEvent(EventType.STARTED, "Starting service registration", serviceId));
-            
-            // Validate request
-            if (!validateServiceRequest(request)) {
-                RegistrationEvent failed = createEventWithError(serviceId, "Invalid service registration request", "Missing required fields");
-                emitter.emit(failed);
-                emitter.complete();
-                return;
-            }
-            
-            emitter.emit(createEvent(EventType.VALIDATED, "Service registration request validated", null));
-            
-            // Register with Consul
-            consulRegistrar.registerService(request, serviceId)
-                .onItem().transformToUni(success -> {
-                    if (!success) {
-                        RegistrationEvent failed = createEventWithError(serviceId, "Failed to register with Consul", "Consul registration returned false");
-                        emitter.emit(failed);
-                        emitter.complete();
-                        return Uni.createFrom().voidItem();
-                    }
-                    
-                    emitter.emit(createEvent(EventType.CONSUL_REGISTERED, "Service registered with Consul", serviceId));
-                    emitter.emit(createEvent(EventType.HEALTH_CHECK_CONFIGURED, "Health check configured", null));
-                    
-                    // Wait for health check
-                    return healthChecker.waitForHealthy(serviceId)
-                        .onItem().invoke(healthy -> {
-                            if (healthy) {
-                                emitter.emit(createEvent(EventType.CONSUL_HEALTHY, "Service reported healthy by Consul", null));
-                                RegistrationEvent completed = createEvent(EventType.COMPLETED, "Service registration completed successfully", serviceId);
-                                emitter.emit(completed);
-                                
-                                // Emit to OpenSearch on success
-                                openSearchProducer.emitServiceRegistered(serviceId, request.getServiceName(), 
-                                    request.getHost(), request.getPort(), request.getVersion());
-                            } else {
-                                // Service registered but never became healthy
-                                RegistrationEvent failed = createEventWithError(serviceId, "Service registered but failed health checks",
-                                    "Service did not become healthy within timeout period. Check service logs and connectivity.");
-                                emitter.emit(failed);
-                                
-                                // Cleanup - unregister from Consul
-                                consulRegistrar.unregisterService(serviceId)
-                                    .subscribe().with(
-                                        cleanup -> LOG.debugf("Cleaned up unhealthy service registration: %s", serviceId),
-                                        error -> LOG.errorf(error, "Failed to cleanup unhealthy service: %s", serviceId)
-                                    );
-                            }
-                            emitter.complete();
-                        });
-                })
-                .subscribe().with(
-                    result -> {}, // Success handled above
-                    error -> {
-                        LOG.error("Failed to register service", error);
-                        RegistrationEvent failed = createEventWithError(serviceId, "Registration failed", error.getMessage());
-                        emitter.emit(failed);
-                        emitter.complete();
-                    }
+        Multi<RegistrationEvent> pipeline;
+        if (!validateServiceRequest(request)) {
+            pipeline = Multi.createFrom().items(
+                createEvent(EventType.STARTED, "Starting service registration", serviceId),
+                createEventWithError(serviceId, "Invalid service registration request", "Missing required fields")
+            );
+        } else {
+            pipeline = Multi.createBy().concatenating()
+                .streams(
+                    Multi.createFrom().items(
+                        createEvent(EventType.STARTED, "Starting service registration", serviceId),
+                        createEvent(EventType.VALIDATED, "Service registration request validated", null)
+                    ),
+                    executeServiceRegistration(request, serviceId, progress)
+                )
+                .onFailure().recoverWithItem(error -> {
+                    LOG.error("Failed to register service", error);
+                    return createEventWithError(serviceId, "Registration failed", error.getMessage());
+                });
+        }
+        return registrationGuard.guard("service", serviceId, progress, pipeline);
+    }
+    
+    private Multi<RegistrationEvent> executeServiceRegistration(ServiceRegistrationRequest request, String serviceId,
+                                                                RegistrationGuard.Progress progress) {
+        return progress.registerInConsul(() -> consulRegistrar.registerService(request, serviceId))
+            .onItem().transformToMulti(success -> {
+                if (!success) {
+                    return Multi.createFrom().item(
+                        createEventWithError(serviceId, "Failed to register with Consul", "Consul registration returned false")
+                    );
+                }
+                
+                return Multi.createBy().concatenating().streams(
+                    Multi.createFrom().items(
+                        createEvent(EventType.CONSUL_REGISTERED, "Service registered with Consul", serviceId),
+                        createEvent(EventType.HEALTH_CHECK_CONFIGURED, "Health check configured", null)
+                    ),
+                    healthChecker.waitForHealthy(request.getServiceName(), serviceId)
+                        .onItem().transformToMulti(healthy -> healthy
+                            ? completeRegistration(request, serviceId, progress)
+                            : failUnhealthy(serviceId, progress))
                 );
-        });
+            });
+    }
+    
+    private Multi<RegistrationEvent> completeRegistration(ServiceRegistrationRequest request, String serviceId,
+                                                          RegistrationGuard.Progress progress) {
+        // A healthy service is registered for good; its own heartbeats keep it there
+        progress.durable();
+        
+        // Emit to OpenSearch on success
+        openSearchProducer.emitServiceRegistered(serviceId, request.getServiceName(),
+            request.getHost(), request.getPort(), request.getVersion());
+        
+        return Multi.createFrom().items(
+            createEvent(EventType.CONSUL_HEALTHY, "Service reported healthy by Consul", null),
+            createEvent(EventType.COMPLETED, "Service registration completed successfully", serviceId)
+        );
+    }
+    
+    private Multi<RegistrationEvent> failUnhealthy(String serviceId, RegistrationGuard.Progress progress) {
+        // Service registered but never became healthy - cleanup, unregister from Consul
+        progress.rolledBack();
+        consulRegistrar.unregisterService(serviceId)
+            .subscribe().with(
+                cleanup -> LOG.debugf("Cleaned up unhealthy service registration: %s", serviceId),
+                error -> LOG.errorf(error, "Failed to cleanup unhealthy service: %s", serviceId)
+            );
+        
+        return Multi.createFrom().item(
+            createEventWithError(serviceId, "Service registered but failed health checks",
+                "Service did not become healthy within timeout period. Check service logs and connectivity.")
+        );
     }
     
     /**
@@ -0,0 +1,148 @@
+package ai.pipestream.registration.handlers;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One run of an event stream, shared by every subscriber that attaches while it runs.
+ * <p>
+ * The run starts with the first subscriber. Later subscribers first receive every event
+ * they missed, then follow along live. When the last subscriber leaves before the run
+ * finishes, or when the run is {@linkplain #cancel(Throwable) cancelled} outright, it is
+ * stopped. {@code onFinish} is called once the run is over either way.
+ */
+final class SharedEventStream<T> {
+
+    private final Multi<T> upstream;
+    private final Runnable onFinish;
+    private final List<T> history = new ArrayList<>();
+    private final List<MultiEmitter<? super T>> subscribers = new ArrayList<>();
+    private boolean started;
+    private boolean finished;
+    private boolean cancelled;
+    private Throwable failure;
+    private Cancellable subscription;
+
+    SharedEventStream(Multi<T> upstream, Runnable onFinish) {
+        this.upstream = upstream;
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * A stream of this run's events, from the first one
+     */
+    Multi<T> attach() {
+        return Multi.createFrom().emitter(this::add);
+    }
+
+    /**
+     * Number of subscribers currently attached
+     */
+    synchronized int subscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * Stop the run, then fail every attached subscriber, and any later one, with {@code error}
+     */
+    void cancel(Throwable error) {
+        Cancellable cancel;
+        List<MultiEmitter<? super T>> attached;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            cancelled = true;
+            failure = error;
+            cancel = subscription;
+            attached = List.copyOf(subscribers);
+            subscribers.clear();
+        }
+        if (cancel != null) {
+            cancel.cancel();
+        }
+        attached.forEach(this::terminate);
+        onFinish.run();
+    }
+
+    private void add(MultiEmitter<? super T> emitter) {
+        emitter.onTermination(() -> remove(emitter));
+        synchronized (this) {
+            history.forEach(emitter::emit);
+            if (finished) {
+                terminate(emitter);
+                return;
+            }
+            subscribers.add(emitter);
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        Cancellable running = upstream.subscribe().with(this::onItem, this::onTermination, () -> onTermination(null));
+        boolean leftWhileStarting;
+        synchronized (this) {
+            subscription = running;
+            leftWhileStarting = cancelled;
+        }
+        if (leftWhileStarting) {
+            running.cancel();
+        }
+    }
+
+    private void remove(MultiEmitter<? super T> emitter) {
+        Cancellable cancel;
+        synchronized (this) {
+            if (!subscribers.remove(emitter) || !subscribers.isEmpty() || finished) {
+                return;
+            }
+            finished = true;
+            cancelled = true;
+            cancel = subscription;
+        }
+        if (cancel != null) {
+            cancel.cancel();
+        }
+        onFinish.run();
+    }
+
+    private synchronized void onItem(T item) {
+        if (finished) {
+            return;
+        }
+        history.add(item);
+        for (MultiEmitter<? super T> emitter : List.copyOf(subscribers)) {
+            emitter.emit(item);
+        }
+    }
+
+    /**
+     * Upstream completed, successfully when {@code error} is {@code null}
+     */
+    private void onTermination(Throwable error) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            failure = error;
+            List<MultiEmitter<? super T>> attached = List.copyOf(subscribers);
+            subscribers.clear();
+            attached.forEach(this::terminate);
+        }
+        onFinish.run();
+    }
+
+    private void terminate(MultiEmitter<? super T> emitter) {
+        if (failure != null) {
+            emitter.fail(failure);
+        } else {
+            emitter.complete();
+        }
+    }
+}
@@ -224,7 +224,7 @@ public class ApicurioRegistryClient {
         });
     }
 
-    private String versionedArtifactId(String serviceName, String version) {
+    public static String versionedArtifactId(String serviceName, String version) {
         String safeVersion = (version == null || version.isBlank()) ? "v1" : ("v" + version.replace('.', '_'));
         return serviceName + "-config-" + safeVersion;
     }
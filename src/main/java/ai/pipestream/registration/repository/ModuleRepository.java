@@ -4,12 +4,19 @@ import ai.pipestream.registration.entity.ConfigSchema;
 import ai.pipestream.registration.entity.ServiceModule;
 import ai.pipestream.registration.entity.ServiceStatus;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hibernate.reactive.mutiny.Mutiny;
 import org.jboss.logging.Logger;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -23,19 +30,95 @@ public class ModuleRepository {
     
     private static final Logger LOG = Logger.getLogger(ModuleRepository.class);
     
+    // An existing schema row is kept as is: a schema ID always names the same content
+    private static final String UPSERT_SCHEMA =
+        "INSERT INTO config_schemas (schema_id, service_name, schema_version, json_schema) " +
+        "VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE schema_id = schema_id";
+    
+    // Row alias instead of VALUES(col): needs MySQL 8.0.19 or later
+    private static final String UPSERT_MODULE =
+        "INSERT INTO modules (service_id, service_name, host, port, version, config_schema_id, metadata, " +
+        "last_heartbeat, status, registration_fingerprint) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'ACTIVE', ?) AS new " +
+        "ON DUPLICATE KEY UPDATE version = new.version, config_schema_id = new.config_schema_id, " +
+        "metadata = new.metadata, last_heartbeat = new.last_heartbeat, status = 'ACTIVE', " +
+        "registration_fingerprint = new.registration_fingerprint";
+    
     @Inject
     ApicurioRegistryClient apicurioClient;
     
     @Inject
     Mutiny.SessionFactory sessionFactory;
     
+    @Inject
+    Pool mysqlPool;
+    
+    @ConfigProperty(name = "pipeline.registration.persistence.upsert", defaultValue = "true")
+    boolean upsert;
+    
     /**
      * Register a new service module with optional schema  
      * Updates existing module if it already exists
      */
     public Uni<ServiceModule> registerModule(String serviceName, String host, int port, 
                                             String version, Map<String, Object> metadata,
-                                            String jsonSchema) {
+                                            String jsonSchema, String fingerprint) {
+        return upsert
+            ? upsertModule(serviceName, host, port, version, metadata, jsonSchema, fingerprint)
+            : findAndMergeModule(serviceName, host, port, version, metadata, jsonSchema, fingerprint);
+    }
+    
+    /**
+     * Write the schema and the module with one {@code INSERT ... ON DUPLICATE KEY UPDATE} each,
+     * in one transaction on one pooled connection. Both statements are issued before either
+     * answers, so with {@code quarkus.datasource.reactive.mysql.pipelining-limit} above 1 they
+     * share a single round trip between BEGIN and COMMIT; no reads are made. A failed module
+     * write rolls back the schema row. The returned module is built from the written values
+     * and is not attached to a Hibernate session.
+     */
+    Uni<ServiceModule> upsertModule(String serviceName, String host, int port,
+                                    String version, Map<String, Object> metadata,
+                                    String jsonSchema, String fingerprint) {
+        ServiceModule module = ServiceModule.create(serviceName, host, port);
+        module.version = version;
+        module.metadata = metadata;
+        module.configSchemaId = jsonSchema != null && !jsonSchema.isBlank()
+            ? ConfigSchema.generateSchemaId(serviceName, version) : null;
+        module.registrationFingerprint = fingerprint;
+        module.status = ServiceStatus.ACTIVE;
+        
+        return mysqlPool.withTransaction(connection -> {
+            Uni<RowSet<Row>> moduleUpsert = connection.preparedQuery(UPSERT_MODULE)
+                .execute(Tuple.tuple()
+                    .addValue(module.serviceId)
+                    .addValue(serviceName)
+                    .addValue(host)
+                    .addValue(port)
+                    .addValue(version)
+                    .addValue(module.configSchemaId)
+                    .addValue(metadata == null ? null : new JsonObject(metadata).encode())
+                    .addValue(module.lastHeartbeat)
+                    .addValue(fingerprint));
+            if (module.configSchemaId == null) {
+                return moduleUpsert.replaceWithVoid();
+            }
+            // Not chained: both commands go out together and run in submission order
+            Uni<RowSet<Row>> schemaUpsert = connection.preparedQuery(UPSERT_SCHEMA)
+                .execute(Tuple.of(module.configSchemaId, serviceName, version, jsonSchema));
+            return Uni.combine().all().unis(schemaUpsert, moduleUpsert).discardItems();
+        })
+        .invoke(() -> LOG.debugf("Upserted module registration for %s", module.serviceId))
+        .replaceWith(module);
+    }
+    
+    /**
+     * Find-then-persist-or-merge in a Hibernate Reactive transaction: several round trips
+     * with the rows locked for the duration. Kept for comparison and as a fallback.
+     */
+    Uni<ServiceModule> findAndMergeModule(String serviceName, String host, int port,
+                                          String version, Map<String, Object> metadata,
+                                          String jsonSchema, String fingerprint) {
         String serviceId = ServiceModule.generateServiceId(serviceName, host, port);
         
         return sessionFactory.withTransaction(session -> {
@@ -78,6 +161,10 @@ public class ModuleRepository {
                                 module.configSchemaId = schemaId;
                                 hasChanges = true;
                             }
+                            if (!Objects.equals(module.registrationFingerprint, fingerprint)) {
+                                module.registrationFingerprint = fingerprint;
+                                hasChanges = true;
+                            }
                             
                             // Always update heartbeat and status
                             module.updateHeartbeat();
@@ -97,6 +184,7 @@ public class ModuleRepository {
                             module.version = version;
                             module.metadata = metadata;
                             module.configSchemaId = schemaId;
+                            module.registrationFingerprint = fingerprint;
                             LOG.infof("Creating new module registration for %s", serviceId);
                             return session.persist(module).map(v -> module);
                         }
@@ -153,6 +241,26 @@ public class ModuleRepository {
         );
     }
     
+    /**
+     * Refresh the heartbeat of a module whose last registration had this fingerprint, in one
+     * statement without loading it
+     * @return true if the module exists with that fingerprint and was refreshed
+     */
+    public Uni<Boolean> refreshIfUnchanged(String serviceId, String fingerprint) {
+        return sessionFactory.withTransaction(session ->
+            session.createMutationQuery(
+                "UPDATE ServiceModule SET lastHeartbeat = :now, status = :status " +
+                "WHERE serviceId = :serviceId AND registrationFingerprint = :fingerprint"
+            )
+            .setParameter("now", LocalDateTime.now())
+            .setParameter("status", ServiceStatus.ACTIVE)
+            .setParameter("serviceId", serviceId)
+            .setParameter("fingerprint", fingerprint)
+            .executeUpdate()
+            .map(updated -> updated > 0)
+        );
+    }
+    
     /**
      * Mark service as unhealthy
      */
@@ -260,6 +368,64 @@ public class ModuleRepository {
         );
     }
     
+    /**
+     * One page of schemas needing sync whose retry time has come, in schema ID order.
+     * Pass the last schema ID of the previous page to get the next one ({@code null} to start).
+     */
+    public Uni<List<ConfigSchema>> findSchemasNeedingSync(String afterSchemaId, LocalDateTime now, int limit) {
+        return sessionFactory.withSession(session ->
+            session.createQuery(
+                "FROM ConfigSchema WHERE syncStatus IN ('PENDING', 'FAILED', 'OUT_OF_SYNC') " +
+                "AND (nextSyncAt IS NULL OR nextSyncAt <= :now) " +
+                "AND schemaId > :after ORDER BY schemaId",
+                ConfigSchema.class
+            )
+            .setParameter("now", now)
+            .setParameter("after", afterSchemaId == null ? "" : afterSchemaId)
+            .setMaxResults(limit)
+            .getResultList()
+        );
+    }
+    
+    /**
+     * Schemas with the given IDs; unknown IDs are left out
+     */
+    public Uni<List<ConfigSchema>> findSchemasByIds(Collection<String> schemaIds) {
+        return sessionFactory.withSession(session ->
+            session.createQuery("FROM ConfigSchema WHERE schemaId IN :schemaIds", ConfigSchema.class)
+                .setParameter("schemaIds", schemaIds)
+                .getResultList()
+        );
+    }
+    
+    /**
+     * Record the Apicurio sync outcome of a batch of schemas in a single transaction
+     */
+    public Uni<Void> recordSyncResults(List<SchemaSyncResult> results) {
+        if (results.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        Map<String, SchemaSyncResult> byId = new java.util.HashMap<>();
+        results.forEach(result -> byId.put(result.schemaId(), result));
+        return sessionFactory.withTransaction(session ->
+            session.find(ConfigSchema.class, byId.keySet().toArray())
+                .invoke(schemas -> {
+                    for (ConfigSchema schema : schemas) {
+                        if (schema == null) {
+                            continue;
+                        }
+                        SchemaSyncResult result = byId.get(schema.schemaId);
+                        if (result.succeeded()) {
+                            schema.markSynced(result.artifactId(), result.globalId());
+                        } else {
+                            schema.markSyncFailed(result.error(), result.retryAt());
+                        }
+                    }
+                })
+                .replaceWithVoid()
+        );
+    }
+    
     /**
      * Count registered services by status
      */
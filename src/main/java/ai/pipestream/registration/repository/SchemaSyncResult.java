@@ -0,0 +1,44 @@
+package ai.pipestream.registration.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of pushing one {@link ai.pipestream.registration.entity.ConfigSchema} to Apicurio.
+ *
+ * @param schemaId   schema that was pushed
+ * @param artifactId Apicurio artifact, when synced
+ * @param globalId   Apicurio global ID, when synced
+ * @param error      failure message, {@code null} when synced
+ * @param retryAt    earliest retry after a failure, {@code null} for no delay
+ */
+public record SchemaSyncResult(String schemaId, String artifactId, Long globalId, String error,
+                               LocalDateTime retryAt) {
+
+    /**
+     * Width of the {@code sync_error} column
+     */
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    public static SchemaSyncResult synced(String schemaId, String artifactId, Long globalId) {
+        return new SchemaSyncResult(schemaId, artifactId, globalId, null, null);
+    }
+
+    public static SchemaSyncResult failed(String schemaId, String error) {
+        String message = error == null ? "Unknown error" : error;
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        return new SchemaSyncResult(schemaId, null, null, message, null);
+    }
+
+    /**
+     * This failure, not to be retried before {@code retryAt}
+     */
+    public SchemaSyncResult retryAt(LocalDateTime retryAt) {
+        return new SchemaSyncResult(schemaId, artifactId, globalId, error, retryAt);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,198 @@
+package ai.pipestream.registration.sync;
+
+import ai.pipestream.registration.entity.ConfigSchema;
+import ai.pipestream.registration.repository.ApicurioRegistryClient;
+import ai.pipestream.registration.repository.ModuleRepository;
+import ai.pipestream.registration.repository.SchemaSyncResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Periodically brings Apicurio in line with MySQL.
+ * <p>
+ * Each run pages through {@code PENDING}, {@code FAILED} and {@code OUT_OF_SYNC} schemas by
+ * schema ID (keyset paging, so a run stays cheap however many rows are behind), pushes each
+ * page to Apicurio with bounded concurrency and records the page's outcomes in one
+ * transaction. A failed schema is not retried before its {@code next_sync_at}, which backs
+ * off exponentially with its {@code sync_attempts}, jittered so that schemas failing
+ * together do not retry together. Schemas waiting in {@link SchemaSyncWorker} are left to it.
+ */
+@ApplicationScoped
+public class SchemaReconciler {
+
+    private static final Logger LOG = Logger.getLogger(SchemaReconciler.class);
+
+    @Inject
+    ModuleRepository moduleRepository;
+
+    @Inject
+    ApicurioRegistryClient apicurioClient;
+
+    @Inject
+    SchemaSyncWorker syncWorker;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.interval", defaultValue = "5m")
+    Duration interval;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.page-size", defaultValue = "100")
+    int pageSize;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.concurrency", defaultValue = "4")
+    int concurrency;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.initial-backoff", defaultValue = "30s")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "pipeline.registration.schema-reconcile.max-backoff", defaultValue = "6h")
+    Duration maxBackoff;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private volatile boolean running;
+    private long timerId = -1;
+    private Timer runDuration;
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!enabled) {
+            LOG.info("Schema reconciliation disabled");
+            return;
+        }
+        runDuration = Timer.builder("pipeline.registration.schema-reconcile.duration")
+            .description("Duration of Apicurio reconciliation runs")
+            .register(meterRegistry);
+        running = true;
+        timerId = vertx.setPeriodic(interval.toMillis(), id -> reconcile());
+        LOG.infof("Starting schema reconciliation every %s (page size %d, concurrency %d)",
+            interval, pageSize, concurrency);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    /**
+     * Start a run unless one is still going
+     */
+    void reconcile() {
+        if (!running || !reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Context context = VertxContext.createNewDuplicatedContext(vertx.getDelegate().getOrCreateContext());
+        reconcileFrom(context, null, 0)
+            .subscribe().with(
+                synced -> {
+                    sample.stop(runDuration);
+                    reconciling.set(false);
+                    if (synced > 0) {
+                        LOG.infof("Schema reconciliation pushed %d schemas to Apicurio", synced);
+                    }
+                },
+                error -> {
+                    sample.stop(runDuration);
+                    reconciling.set(false);
+                    LOG.warnf("Schema reconciliation run failed: %s", error.getMessage());
+                }
+            );
+    }
+
+    /**
+     * Reconcile the page after {@code afterSchemaId}, then the following ones
+     * @return number of schemas synced in this and later pages
+     */
+    private Uni<Integer> reconcileFrom(Context context, String afterSchemaId, int syncedSoFar) {
+        if (!running) {
+            return Uni.createFrom().item(syncedSoFar);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return onContext(context, () -> moduleRepository.findSchemasNeedingSync(afterSchemaId, now, pageSize))
+            .chain(page -> {
+                if (page.isEmpty()) {
+                    return Uni.createFrom().item(syncedSoFar);
+                }
+                String last = page.get(page.size() - 1).schemaId;
+                return Multi.createFrom().iterable(page)
+                    .select().where(schema -> !syncWorker.isQueued(schema.schemaId))
+                    .onItem().transformToUni(this::push).merge(concurrency)
+                    .collect().asList()
+                    .chain(results -> onContext(context, () -> moduleRepository.recordSyncResults(results))
+                        .replaceWith(syncedSoFar + (int) results.stream().filter(SchemaSyncResult::succeeded).count()))
+                    .chain(synced -> page.size() < pageSize
+                        ? Uni.createFrom().item(synced)
+                        : reconcileFrom(context, last, synced));
+            });
+    }
+
+    private Uni<SchemaSyncResult> push(ConfigSchema schema) {
+        return apicurioClient.createOrUpdateSchema(schema.serviceName, schema.schemaVersion, schema.jsonSchema)
+            .map(response -> {
+                count("synced");
+                return SchemaSyncResult.synced(schema.schemaId, response.getArtifactId(), response.getGlobalId());
+            })
+            .onFailure().recoverWithItem(error -> {
+                count("failed");
+                Duration delay = jitteredBackoff(schema.syncAttempts + 1, initialBackoff, maxBackoff,
+                    ThreadLocalRandom.current().nextDouble());
+                LOG.debugf("Reconciling %s failed (attempt %d), next try in %s: %s",
+                    schema.schemaId, schema.syncAttempts + 1, delay, error.getMessage());
+                return SchemaSyncResult.failed(schema.schemaId, error.getMessage())
+                    .retryAt(LocalDateTime.now().plus(delay));
+            });
+    }
+
+    /**
+     * Exponential backoff for the given attempt, capped, with "equal jitter": the delay is
+     * drawn uniformly from the upper half of the exponential step
+     * @param random uniform in [0, 1)
+     */
+    static Duration jitteredBackoff(int attempts, Duration initial, Duration max, double random) {
+        long step = initial.toMillis() << Math.min(Math.max(attempts - 1, 0), 30);
+        long capped = Math.min(Math.max(step, 0), max.toMillis());
+        return Duration.ofMillis(capped / 2 + (long) (random * (capped - capped / 2)));
+    }
+
+    private <T> Uni<T> onContext(Context context, Supplier<Uni<T>> call) {
+        return Uni.createFrom().voidItem()
+            .emitOn(r -> context.runOnContext(x -> r.run()))
+            .chain(ignored -> call.get());
+    }
+
+    private void count(String outcome) {
+        Counter.builder("pipeline.registration.schema-reconcile.results")
+            .description("Schemas pushed to Apicurio by reconciliation, by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,325 @@
+package ai.pipestream.registration.sync;
+
+import ai.pipestream.registration.entity.ConfigSchema;
+import ai.pipestream.registration.repository.ApicurioRegistryClient;
+import ai.pipestream.registration.repository.ModuleRepository;
+import ai.pipestream.registration.repository.SchemaSyncResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pushes saved {@link ConfigSchema} rows to Apicurio in the background, so that module
+ * registration completes as soon as MySQL commits.
+ * <p>
+ * Registration queues the schema ID; the worker takes due entries in batches, pushes the
+ * batch to Apicurio concurrently and records every outcome in one transaction. Failed
+ * pushes are retried with exponential backoff up to {@code max-attempts}, after which the
+ * row stays {@code FAILED} in MySQL. The queue lives in memory: rows still {@code PENDING}
+ * after a restart are left to reconciliation.
+ */
+@ApplicationScoped
+public class SchemaSyncWorker {
+
+    private static final Logger LOG = Logger.getLogger(SchemaSyncWorker.class);
+
+    @Inject
+    ModuleRepository moduleRepository;
+
+    @Inject
+    ApicurioRegistryClient apicurioClient;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.batch-size", defaultValue = "20")
+    int batchSize;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.interval", defaultValue = "5s")
+    Duration interval;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.initial-backoff", defaultValue = "1s")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "pipeline.registration.schema-sync.max-backoff", defaultValue = "5m")
+    Duration maxBackoff;
+
+    // Guarded by this
+    private final PriorityQueue<Pending> due = new PriorityQueue<>(Comparator.comparingLong(Pending::dueAtMillis));
+    private final Map<String, Pending> queued = new HashMap<>();
+    private final Map<String, List<Consumer<String>>> whenSynced = new HashMap<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean running;
+    private long timerId = -1;
+    private Timer syncLag;
+
+    /**
+     * A queued schema: when it was first queued, when it may next be pushed, and how many pushes failed
+     */
+    private record Pending(String schemaId, long enqueuedAtMillis, long dueAtMillis, int attempts) {
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!enabled) {
+            LOG.info("Background schema sync disabled; schemas stay PENDING until reconciled");
+            return;
+        }
+        registerMetrics();
+        running = true;
+        timerId = vertx.setPeriodic(interval.toMillis(), id -> drain());
+        LOG.infof("Starting schema sync worker (batch size %d, max attempts %d)", batchSize, maxAttempts);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    /**
+     * Queue a schema for sync to Apicurio and return immediately.
+     * A schema already waiting is not queued twice.
+     */
+    public void enqueue(String schemaId) {
+        enqueue(schemaId, null);
+    }
+
+    /**
+     * Queue a schema for sync to Apicurio, and call {@code onSynced} with its artifact ID once
+     * it is in Apicurio, at once if it already was. Not called if the sync gives up, the row is
+     * gone or this worker is disabled.
+     */
+    public void enqueue(String schemaId, Consumer<String> onSynced) {
+        if (!running || schemaId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (onSynced != null) {
+                whenSynced.computeIfAbsent(schemaId, id -> new ArrayList<>()).add(onSynced);
+            }
+            if (queued.containsKey(schemaId)) {
+                return;
+            }
+            Pending pending = new Pending(schemaId, now, now, 0);
+            queued.put(schemaId, pending);
+            due.add(pending);
+        }
+        vertx.getDelegate().runOnContext(ignored -> drain());
+    }
+
+    /**
+     * Whether the schema is waiting in this worker's queue
+     */
+    public synchronized boolean isQueued(String schemaId) {
+        return queued.containsKey(schemaId);
+    }
+
+    public synchronized int queueDepth() {
+        return queued.size();
+    }
+
+    private void drain() {
+        if (!running || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        List<Pending> batch = takeDue();
+        if (batch.isEmpty()) {
+            draining.set(false);
+            return;
+        }
+        Context context = VertxContext.createNewDuplicatedContext(vertx.getDelegate().getOrCreateContext());
+        syncBatch(context, batch)
+            .subscribe().with(
+                ignored -> {
+                    draining.set(false);
+                    drain();
+                },
+                error -> {
+                    LOG.warnf("Schema sync batch of %d failed: %s", batch.size(), error.getMessage());
+                    batch.forEach(pending -> retryOrGiveUp(pending));
+                    draining.set(false);
+                }
+            );
+    }
+
+    private synchronized List<Pending> takeDue() {
+        long now = System.currentTimeMillis();
+        List<Pending> batch = new ArrayList<>();
+        while (batch.size() < batchSize && !due.isEmpty() && due.peek().dueAtMillis() <= now) {
+            batch.add(due.poll());
+        }
+        return batch;
+    }
+
+    private Uni<Void> syncBatch(Context context, List<Pending> batch) {
+        Map<String, Pending> byId = new HashMap<>();
+        batch.forEach(pending -> byId.put(pending.schemaId(), pending));
+
+        return onContext(context, () -> moduleRepository.findSchemasByIds(byId.keySet()))
+            .invoke(schemas -> schemas.stream()
+                .filter(schema -> schema.syncStatus == ConfigSchema.SyncStatus.SYNCED && schema.apicurioArtifactId != null)
+                .forEach(schema -> synced(schema.schemaId, schema.apicurioArtifactId)))
+            .chain(schemas -> Multi.createFrom().iterable(schemas)
+                .select().where(schema -> schema.syncStatus != ConfigSchema.SyncStatus.SYNCED)
+                .onItem().transformToUniAndMerge(this::push)
+                .collect().asList())
+            .chain(results -> onContext(context, () -> moduleRepository.recordSyncResults(results))
+                .invoke(() -> settle(byId, results)));
+    }
+
+    private Uni<SchemaSyncResult> push(ConfigSchema schema) {
+        return apicurioClient.createOrUpdateSchema(schema.serviceName, schema.schemaVersion, schema.jsonSchema)
+            .map(response -> SchemaSyncResult.synced(schema.schemaId, response.getArtifactId(), response.getGlobalId()))
+            .onFailure().recoverWithItem(error -> SchemaSyncResult.failed(schema.schemaId, error.getMessage()));
+    }
+
+    /**
+     * Drop synced, already-synced and deleted schemas from the queue; retry the rest
+     */
+    private void settle(Map<String, Pending> batch, List<SchemaSyncResult> results) {
+        Map<String, SchemaSyncResult> failures = new HashMap<>();
+        Map<String, SchemaSyncResult> successes = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (SchemaSyncResult result : results) {
+            if (result.succeeded()) {
+                Pending pending = batch.get(result.schemaId());
+                syncLag.record(now - pending.enqueuedAtMillis(), TimeUnit.MILLISECONDS);
+                count("synced");
+                successes.put(result.schemaId(), result);
+            } else {
+                failures.put(result.schemaId(), result);
+            }
+        }
+        for (Pending pending : batch.values()) {
+            SchemaSyncResult failure = failures.get(pending.schemaId());
+            SchemaSyncResult success = successes.get(pending.schemaId());
+            if (failure != null) {
+                LOG.debugf("Apicurio sync of %s failed (attempt %d): %s",
+                    pending.schemaId(), pending.attempts() + 1, failure.error());
+                retryOrGiveUp(pending);
+            } else if (success != null) {
+                synchronized (this) {
+                    queued.remove(pending.schemaId());
+                }
+                synced(pending.schemaId(), success.artifactId());
+            } else {
+                // Already synced, and told so in syncBatch, or deleted
+                synchronized (this) {
+                    queued.remove(pending.schemaId());
+                    whenSynced.remove(pending.schemaId());
+                }
+            }
+        }
+    }
+
+    private void retryOrGiveUp(Pending pending) {
+        int attempts = pending.attempts() + 1;
+        synchronized (this) {
+            if (attempts >= maxAttempts) {
+                queued.remove(pending.schemaId());
+                whenSynced.remove(pending.schemaId());
+            } else {
+                Pending retry = new Pending(pending.schemaId(), pending.enqueuedAtMillis(),
+                    System.currentTimeMillis() + backoff(attempts).toMillis(), attempts);
+                queued.put(retry.schemaId(), retry);
+                due.add(retry);
+            }
+        }
+        if (attempts >= maxAttempts) {
+            LOG.warnf("Giving up Apicurio sync of %s after %d attempts; it stays FAILED", pending.schemaId(), attempts);
+            count("gave_up");
+        } else {
+            count("retried");
+        }
+    }
+
+    private void synced(String schemaId, String artifactId) {
+        List<Consumer<String>> listeners;
+        synchronized (this) {
+            listeners = whenSynced.remove(schemaId);
+        }
+        if (listeners != null) {
+            listeners.forEach(listener -> listener.accept(artifactId));
+        }
+    }
+
+    /**
+     * Exponential backoff after {@code attempts} failed pushes, capped at the maximum
+     */
+    Duration backoff(int attempts) {
+        long millis = initialBackoff.toMillis() << Math.min(attempts - 1, 30);
+        return Duration.ofMillis(Math.min(Math.max(millis, 0), maxBackoff.toMillis()));
+    }
+
+    private synchronized long oldestPendingAgeMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Pending pending : queued.values()) {
+            oldest = Math.min(oldest, pending.enqueuedAtMillis());
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private <T> Uni<T> onContext(Context context, Supplier<Uni<T>> call) {
+        return Uni.createFrom().voidItem()
+            .emitOn(r -> context.runOnContext(x -> r.run()))
+            .chain(ignored -> call.get());
+    }
+
+    private void count(String outcome) {
+        Counter.builder("pipeline.registration.schema-sync.results")
+            .description("Apicurio schema sync attempts by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private void registerMetrics() {
+        syncLag = Timer.builder("pipeline.registration.schema-sync.lag")
+            .description("Time from a schema being queued until it is synced to Apicurio")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.registration.schema-sync.queue.depth", this, SchemaSyncWorker::queueDepth)
+            .description("Schemas waiting to be synced to Apicurio")
+            .register(meterRegistry);
+        Gauge.builder("pipeline.registration.schema-sync.oldest.age", this, worker -> worker.oldestPendingAgeMillis() / 1000.0)
+            .description("Seconds the oldest queued schema has been waiting")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+}
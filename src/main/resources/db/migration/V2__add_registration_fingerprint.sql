@@ -0,0 +1,2 @@
+-- Content fingerprint of the last registration, so unchanged re-registrations can skip straight to a heartbeat
+ALTER TABLE modules ADD COLUMN registration_fingerprint CHAR(64);
@@ -0,0 +1,6 @@
+-- Per-schema retry state for Apicurio reconciliation
+ALTER TABLE config_schemas ADD COLUMN sync_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE config_schemas ADD COLUMN next_sync_at DATETIME(6);
+
+-- Keyset paging over schemas needing sync, in schema_id order
+CREATE INDEX idx_schemas_sync_status_id ON config_schemas(sync_status, schema_id);
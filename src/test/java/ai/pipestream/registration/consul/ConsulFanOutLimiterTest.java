@@ -0,0 +1,74 @@
+package ai.pipestream.registration.consul;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ConsulFanOutLimiterTest {
+
+    @Test
+    void submit_keepsInflightCallsWithinLimit() {
+        ConsulFanOutLimiter limiter = limiter(2, 1);
+        List<UniEmitter<? super String>> calls = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.<String>submit(() -> Uni.createFrom().emitter(calls::add))
+                .subscribe().with(results::add);
+        }
+
+        assertThat("Only two calls should have started", calls, hasSize(2));
+        assertThat(limiter.queued(), is(3));
+
+        calls.get(0).complete("first");
+        assertThat("Completing a call should start the next one", calls, hasSize(3));
+        assertThat(limiter.inflight(), is(2));
+        assertThat(results, contains("first"));
+    }
+
+    @Test
+    void adjust_backsOffOnSlowCallsAndRecoversOnFastOnes() {
+        ConsulFanOutLimiter limiter = limiter(16, 4);
+
+        limiter.adjust(TimeUnit.SECONDS.toNanos(2), true);
+        assertThat("Slow call should cut the limit", limiter.currentLimit(), is(12));
+
+        limiter.adjust(TimeUnit.SECONDS.toNanos(2), true);
+        assertThat("Only one decrease per latency window", limiter.currentLimit(), is(12));
+
+        for (int i = 0; i < 13; i++) {
+            limiter.adjust(TimeUnit.MILLISECONDS.toNanos(5), true);
+        }
+        assertThat("A round of fast calls should raise the limit", limiter.currentLimit(), is(13));
+    }
+
+    @Test
+    void limit_neverExceedsTheClientConnectionPool() {
+        ConsulFanOutLimiter limiter = limiter(32, 4);
+        limiter.clientPoolSize = 5;
+
+        assertThat(limiter.currentLimit(), is(5));
+        for (int i = 0; i < 50; i++) {
+            limiter.adjust(TimeUnit.MILLISECONDS.toNanos(5), true);
+        }
+        assertThat("Fast calls should not raise the limit past the pool", limiter.currentLimit(), is(5));
+    }
+
+    private static ConsulFanOutLimiter limiter(int max, int min) {
+        ConsulFanOutLimiter limiter = new ConsulFanOutLimiter();
+        limiter.clientPoolSize = max;
+        limiter.maxConcurrency = max;
+        limiter.minConcurrency = min;
+        limiter.targetLatency = Duration.ofMillis(250);
+        limiter.adaptive = true;
+        return limiter;
+    }
+}
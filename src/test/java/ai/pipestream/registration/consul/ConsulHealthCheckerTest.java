@@ -0,0 +1,100 @@
+package ai.pipestream.registration.consul;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.ext.consul.Service;
+import io.vertx.ext.consul.ServiceEntry;
+import io.vertx.ext.consul.ServiceEntryList;
+import io.vertx.ext.consul.ServiceQueryOptions;
+import io.vertx.mutiny.ext.consul.ConsulClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ConsulHealthCheckerTest {
+
+    @Test
+    void waitForHealthy_blocksOnTheHealthIndexUntilTheInstancePasses() {
+        ConsulHealthChecker checker = checker();
+        when(checker.watchClient.healthServiceNodesWithOptions(eq("parser"), eq(true), any()))
+            .thenReturn(Uni.createFrom().item(entries(41, "parser-10-0-0-2-9090")))
+            .thenReturn(Uni.createFrom().item(entries(42, "parser-10-0-0-2-9090", "parser-10-0-0-1-9090")));
+
+        Boolean healthy = checker.waitForHealthy("parser", "parser-10-0-0-1-9090").await().atMost(Duration.ofSeconds(5));
+
+        assertThat(healthy, is(true));
+        ArgumentCaptor<ServiceQueryOptions> options = ArgumentCaptor.forClass(ServiceQueryOptions.class);
+        verify(checker.watchClient, times(2)).healthServiceNodesWithOptions(eq("parser"), eq(true), options.capture());
+        assertThat("First query should answer immediately", options.getAllValues().get(0).getBlockingOptions().getIndex(), is(0L));
+        assertThat("Second query should block on the returned index",
+            options.getAllValues().get(1).getBlockingOptions().getIndex(), is(41L));
+    }
+
+    @Test
+    void waitForHealthy_givesUpAtTheTimeout() {
+        ConsulHealthChecker checker = checker();
+        checker.healthTimeout = Duration.ofMillis(200);
+        when(checker.watchClient.healthServiceNodesWithOptions(eq("parser"), eq(true), any()))
+            .thenReturn(Uni.createFrom().item(entries(7)).onItem().delayIt().by(Duration.ofMillis(50)));
+
+        Boolean healthy = checker.waitForHealthy("parser", "parser-10-0-0-1-9090").await().atMost(Duration.ofSeconds(5));
+
+        assertThat(healthy, is(false));
+    }
+
+    @Test
+    void waitForHealthy_sharesOneWatchPerServiceName() {
+        ConsulHealthChecker checker = checker();
+        List<UniEmitter<? super ServiceEntryList>> queries = new ArrayList<>();
+        when(checker.watchClient.healthServiceNodesWithOptions(eq("parser"), eq(true), any()))
+            .thenAnswer(invocation -> Uni.createFrom().<ServiceEntryList>emitter(queries::add));
+
+        UniAssertSubscriber<Boolean> first = checker.waitForHealthy("parser", "parser-10-0-0-1-9090")
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<Boolean> second = checker.waitForHealthy("parser", "parser-10-0-0-2-9090")
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        assertThat("Both waiters should share one query", queries, hasSize(1));
+
+        queries.get(0).complete(entries(5, "parser-10-0-0-1-9090"));
+        first.assertItem(true);
+        second.assertNotTerminated();
+        assertThat(queries, hasSize(2));
+
+        UniAssertSubscriber<Boolean> third = checker.waitForHealthy("parser", "parser-10-0-0-1-9090")
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        third.assertItem(true);
+
+        queries.get(1).complete(entries(6, "parser-10-0-0-1-9090", "parser-10-0-0-2-9090"));
+        second.assertItem(true);
+        assertThat("The watch should stop with its last waiter", checker.activeWatches(), is(0));
+        verify(checker.watchClient, times(2)).healthServiceNodesWithOptions(eq("parser"), eq(true), any());
+        verifyNoInteractions(checker.consulClient);
+    }
+
+    private static ConsulHealthChecker checker() {
+        ConsulHealthChecker checker = new ConsulHealthChecker();
+        checker.consulClient = mock(ConsulClient.class);
+        checker.watchClient = mock(ConsulClient.class);
+        checker.healthTimeout = Duration.ofSeconds(5);
+        checker.retryDelay = Duration.ofMillis(10);
+        return checker;
+    }
+
+    private static ServiceEntryList entries(long index, String... serviceIds) {
+        List<ServiceEntry> list = Arrays.stream(serviceIds)
+            .map(id -> new ServiceEntry().setService(new Service().setName("parser").setId(id)))
+            .toList();
+        return new ServiceEntryList().setList(list).setIndex(index);
+    }
+}
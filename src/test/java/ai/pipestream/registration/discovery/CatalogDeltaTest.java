@@ -0,0 +1,46 @@
+package ai.pipestream.registration.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class CatalogDeltaTest {
+
+    @Test
+    void between_reportsAddedChangedAndRemovedInstances() {
+        CatalogInstance kept = instance("orders-10-0-0-1-9090", "1.0.0");
+        CatalogInstance upgraded = instance("orders-10-0-0-2-9090", "1.0.0");
+        CatalogInstance dropped = instance("orders-10-0-0-3-9090", "1.0.0");
+        CatalogInstance upgradedNow = instance("orders-10-0-0-2-9090", "1.1.0");
+        CatalogInstance fresh = instance("orders-10-0-0-4-9090", "1.1.0");
+
+        CatalogDelta delta = CatalogDelta.between(
+            List.of(kept, upgraded, dropped),
+            List.of(kept, upgradedNow, fresh));
+
+        assertThat("New instance should be reported as added", delta.added(), contains(fresh));
+        assertThat("Instance with new metadata should be reported as changed", delta.changed(), contains(upgradedNow));
+        assertThat("Missing instance should be reported as removed", delta.removed(), contains(dropped));
+        assertThat("Total should reflect the new list", delta.total(), is(3));
+        assertThat(delta.isEmpty(), is(false));
+    }
+
+    @Test
+    void between_identicalListsIsEmpty() {
+        List<CatalogInstance> instances = List.of(instance("orders-10-0-0-1-9090", "1.0.0"));
+
+        CatalogDelta delta = CatalogDelta.between(instances, List.copyOf(instances));
+
+        assertThat("Unchanged lists should produce an empty delta", delta.isEmpty(), is(true));
+        assertThat(delta.total(), is(1));
+    }
+
+    private static CatalogInstance instance(String serviceId, String version) {
+        return new CatalogInstance(serviceId, "orders", "10.0.0.1", 9090,
+            List.of("grpc"), List.of(), Map.of("version", version), version, false);
+    }
+}
@@ -0,0 +1,54 @@
+package ai.pipestream.registration.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogFilterTest {
+
+    private final CatalogInstance parser = new CatalogInstance("parser-a-10-0-0-1-9090", "parser-a", "10.0.0.1", 9090,
+        List.of("grpc", "capability:ocr"), List.of("ocr"), Map.of("version", "2.10"), "2.10", false);
+    private final CatalogInstance orders = new CatalogInstance("orders-10-0-0-2-8080", "orders", "10.0.0.2", 8080,
+        List.of("http"), List.of(), Map.of(), "1.0.0", false);
+
+    @Test
+    void parse_combinesConditions() {
+        CatalogFilter filter = CatalogFilter.parse("tag:grpc AND meta.version >= 2.9 AND name ^= \"parser-\"");
+
+        assertThat("Version comparison should be numeric per segment", filter.test(parser), is(true));
+        assertThat(filter.test(orders), is(false));
+    }
+
+    @Test
+    void parse_supportsOrNotAndParentheses() {
+        assertThat(CatalogFilter.parse("tag:http OR capability:ocr").apply(List.of(parser, orders)),
+            contains(parser, orders));
+        assertThat(CatalogFilter.parse("NOT (tag:grpc || port > 9000)").apply(List.of(parser, orders)),
+            contains(orders));
+        assertThat("Missing metadata should only satisfy !=",
+            CatalogFilter.parse("meta.zone != east").apply(List.of(parser, orders)), contains(parser, orders));
+    }
+
+    @Test
+    void mayMatchService_usesTopLevelConditionsOnly() {
+        CatalogFilter conjunction = CatalogFilter.parse("name ^= parser- AND capability:ocr");
+        assertThat(conjunction.mayMatchService("parser-a", List.of("grpc", "capability:ocr")), is(true));
+        assertThat(conjunction.mayMatchService("orders", List.of("http")), is(false));
+
+        CatalogFilter disjunction = CatalogFilter.parse("name == parser-a OR tag:http");
+        assertThat("Either branch could match, so nothing can be pruned",
+            disjunction.mayMatchService("orders", List.of()), is(true));
+    }
+
+    @Test
+    void parse_rejectsInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogFilter.parse("colour == red"));
+        assertThrows(IllegalArgumentException.class, () -> CatalogFilter.parse("(tag:grpc"));
+        assertThrows(IllegalArgumentException.class, () -> CatalogFilter.parse("name == \"unterminated"));
+    }
+}
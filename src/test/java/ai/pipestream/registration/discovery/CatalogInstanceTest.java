@@ -0,0 +1,35 @@
+package ai.pipestream.registration.discovery;
+
+import io.vertx.ext.consul.Service;
+import io.vertx.ext.consul.ServiceEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class CatalogInstanceTest {
+
+    @Test
+    void from_dropsLegacySchemaMetadata() {
+        Service service = new Service()
+            .setName("parser")
+            .setId("parser-10-0-0-1-9090")
+            .setAddress("10.0.0.1")
+            .setPort(9090)
+            .setTags(List.of("module", "capability:PipeStepProcessor"))
+            .setMeta(Map.of(
+                CatalogInstance.SCHEMA_METADATA_KEY, "{\"type\":\"object\"}",
+                CatalogInstance.SCHEMA_HASH_METADATA_KEY, "abc123",
+                "version", "1.0.0"));
+
+        CatalogInstance instance = CatalogInstance.from(new ServiceEntry().setService(service));
+
+        assertThat(instance.metadata(), not(hasKey(CatalogInstance.SCHEMA_METADATA_KEY)));
+        assertThat(instance.metadata(), hasEntry(CatalogInstance.SCHEMA_HASH_METADATA_KEY, "abc123"));
+        assertThat(instance.version(), is("1.0.0"));
+        assertThat(instance.module(), is(true));
+    }
+}
@@ -0,0 +1,123 @@
+package ai.pipestream.registration.discovery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.ext.consul.ConsulClientOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.http.HttpServer;
+import io.vertx.mutiny.core.http.HttpServerRequest;
+import io.vertx.mutiny.ext.consul.ConsulClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the engine against a fake Consul that holds every blocking query open, as a quiet
+ * catalog does, with more services than the default client has connections.
+ */
+class CatalogSnapshotEngineTest {
+
+    private static final int SERVICES = 8;
+
+    private Vertx vertx;
+    private HttpServer consul;
+    private final AtomicInteger heldQueries = new AtomicInteger();
+    private ConsulClient defaultClient;
+    private ConsulClient watchClient;
+    private CatalogSnapshotEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        consul = vertx.createHttpServer()
+            .requestHandler(this::answer)
+            .listen(0)
+            .await().atMost(Duration.ofSeconds(5));
+
+        // As produced by ConsulClientProducer: default options, and a watch pool sized for the catalog
+        defaultClient = ConsulClient.create(vertx, new ConsulClientOptions()
+            .setHost("localhost").setPort(consul.actualPort()));
+        watchClient = ConsulClient.create(vertx, new ConsulClientOptions()
+            .setHost("localhost").setPort(consul.actualPort()).setMaxPoolSize(64));
+
+        engine = new CatalogSnapshotEngine();
+        engine.consulClient = watchClient;
+        engine.vertx = vertx;
+        engine.meterRegistry = new SimpleMeterRegistry();
+        engine.enabled = true;
+        engine.blockingWait = "30s";
+        engine.retryDelay = Duration.ofSeconds(1);
+        engine.journalSize = 16;
+        engine.watchPoolSize = 64;
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.onStop(null);
+        defaultClient.close();
+        watchClient.close();
+        vertx.closeAndAwait();
+    }
+
+    @Test
+    void watchesOfManyServicesDoNotStarveEachOtherOrTheDefaultClient() throws InterruptedException {
+        engine.onStart(null);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!engine.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat("Every service's first answer should arrive while the others long-poll",
+            engine.isReady(), is(true));
+        assertThat(engine.current().orElseThrow().services(), hasSize(SERVICES));
+
+        deadline = System.currentTimeMillis() + 5_000;
+        while (heldQueries.get() < SERVICES + 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat("Catalog and every service watch should be parked at once",
+            heldQueries.get(), is(SERVICES + 1));
+
+        assertThat("Agent calls should not queue behind the long-polls",
+            defaultClient.localServices().await().atMost(Duration.ofSeconds(2)), is(empty()));
+    }
+
+    /**
+     * Answers queries without an index at once and parks blocking ones, like Consul with nothing changing
+     */
+    private void answer(HttpServerRequest request) {
+        String index = request.getParam("index");
+        if (index != null && !"0".equals(index)) {
+            heldQueries.incrementAndGet();
+            return;
+        }
+        String path = request.path();
+        String body;
+        if (path.equals("/v1/catalog/services")) {
+            body = IntStream.range(0, SERVICES)
+                .mapToObj(i -> "\"svc-" + i + "\":[\"grpc\"]")
+                .collect(Collectors.joining(",", "{", "}"));
+        } else if (path.startsWith("/v1/health/service/")) {
+            String name = path.substring("/v1/health/service/".length());
+            body = "[{\"Node\":{\"Node\":\"node-1\",\"Address\":\"10.0.0.1\"},"
+                + "\"Service\":{\"ID\":\"" + name + "-1\",\"Service\":\"" + name + "\",\"Address\":\"10.0.0.1\","
+                + "\"Port\":9090,\"Tags\":[\"grpc\"],\"Meta\":{}},\"Checks\":[]}]";
+        } else if (path.equals("/v1/agent/services")) {
+            body = "{}";
+        } else {
+            request.response().setStatusCode(404).endAndForget();
+            return;
+        }
+        request.response()
+            .putHeader("Content-Type", "application/json")
+            .putHeader("X-Consul-Index", "10")
+            .endAndForget(body);
+    }
+}
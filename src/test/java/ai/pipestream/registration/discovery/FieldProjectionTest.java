@@ -0,0 +1,64 @@
+package ai.pipestream.registration.discovery;
+
+import ai.pipestream.platform.registration.ServiceDetails;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldProjectionTest {
+
+    private final ServiceDetails details = ServiceDetails.newBuilder()
+        .setServiceId("parser-10-0-0-1-9090")
+        .setServiceName("parser")
+        .setHost("10.0.0.1")
+        .setPort(9090)
+        .putMetadata("json-config-schema", "{\"type\":\"object\"}")
+        .addTags("grpc")
+        .setRegisteredAt(Timestamp.newBuilder().setSeconds(42).setNanos(7))
+        .build();
+
+    @Test
+    void apply_keepsOnlyMaskedFields() {
+        FieldProjection projection = FieldProjection.parse("service_id, host,port")
+            .validate(ServiceDetails.getDescriptor());
+
+        ServiceDetails projected = projection.apply(details);
+
+        assertThat(projected.getServiceId(), is("parser-10-0-0-1-9090"));
+        assertThat(projected.getHost(), is("10.0.0.1"));
+        assertThat(projected.getPort(), is(9090));
+        assertThat(projected.getMetadataMap(), is(anEmptyMap()));
+        assertThat(projected.getTagsList(), is(empty()));
+        assertThat(projected.getSerializedSize(), is(lessThan(details.getSerializedSize())));
+    }
+
+    @Test
+    void apply_supportsNestedPathsAndJsonNames() {
+        ServiceDetails projected = FieldProjection.parse("serviceName,registered_at.seconds,tags").apply(details);
+
+        assertThat(projected.getServiceName(), is("parser"));
+        assertThat(projected.getRegisteredAt().getSeconds(), is(42L));
+        assertThat("Unmasked sub-field should be dropped", projected.getRegisteredAt().getNanos(), is(0));
+        assertThat(projected.getTagsList(), contains("grpc"));
+    }
+
+    @Test
+    void parse_normalizesSoEqualMasksShareCacheEntries() {
+        assertThat(FieldProjection.parse("port,host"), is(FieldProjection.parse("host, port,host")));
+        assertThat(FieldProjection.parse(" ").isAll(), is(true));
+        assertThat(FieldProjection.ALL.applyAll(List.of(details)).get(0), is(sameInstance(details)));
+    }
+
+    @Test
+    void validate_rejectsUnknownFields() {
+        assertThrows(IllegalArgumentException.class,
+            () -> FieldProjection.parse("host,colour").validate(ServiceDetails.getDescriptor()));
+        assertThrows(IllegalArgumentException.class,
+            () -> FieldProjection.parse("host.length").validate(ServiceDetails.getDescriptor()));
+    }
+}
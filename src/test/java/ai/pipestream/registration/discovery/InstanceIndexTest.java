@@ -0,0 +1,78 @@
+package ai.pipestream.registration.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class InstanceIndexTest {
+
+    private final CatalogInstance gpuParser = instance("parser-1", List.of("grpc", "gpu"), List.of("parse", "ocr"));
+    private final CatalogInstance cpuParser = instance("parser-2", List.of("grpc"), List.of("parse"));
+    private final CatalogInstance gpuOcr = instance("parser-3", List.of("gpu"), List.of("ocr"));
+    private final InstanceIndex index = InstanceIndex.of(List.of(gpuParser, cpuParser, gpuOcr));
+
+    @Test
+    void matching_intersectsTagsAndCapabilities() {
+        assertThat(index.matching(List.of("gpu"), List.of()), contains(gpuParser, gpuOcr));
+        assertThat(index.matching(List.of(), List.of("parse", "ocr")), contains(gpuParser));
+        assertThat(index.matching(List.of("grpc"), List.of("parse")), contains(gpuParser, cpuParser));
+    }
+
+    @Test
+    void matching_unknownRequirementMatchesNothing() {
+        assertThat(index.matching(List.of("gpu"), List.of("translate")), is(empty()));
+    }
+
+    @Test
+    void matching_withoutRequirementsReturnsAllInstances() {
+        assertThat(index.matching(List.of(), List.of()), sameInstance(index.instances()));
+    }
+
+    @Test
+    void nearest_prefersHostThenRackThenSubnetThenZone() {
+        CatalogInstance sameHost = located("orders-1", "10.0.1.5", "eu-1a", "r1");
+        CatalogInstance sameRack = located("orders-2", "10.0.2.7", "eu-1a", "r1");
+        CatalogInstance sameSubnet = located("orders-3", "10.0.1.9", "eu-1b", "r9");
+        CatalogInstance sameZone = located("orders-4", "10.0.3.3", "eu-1a", "r2");
+        CatalogInstance remote = located("orders-5", "10.9.9.9", "us-1a", "r1");
+        InstanceIndex orders = InstanceIndex.of(List.of(sameHost, sameRack, sameSubnet, sameZone, remote));
+        Locality caller = new Locality("10.0.1.5", "10.0.1.0/24", "r1", "eu-1a");
+
+        InstanceIndex.Nearest nearest = orders.nearest(orders.instances(), caller);
+        assertThat(nearest.tier(), is(Locality.Tier.HOST));
+        assertThat(nearest.instances(), contains(sameHost));
+
+        nearest = orders.nearest(List.of(sameRack, sameSubnet, sameZone, remote), caller);
+        assertThat("Rack only matches within the same zone", nearest.tier(), is(Locality.Tier.RACK));
+        assertThat(nearest.instances(), contains(sameRack));
+
+        assertThat(orders.nearest(List.of(sameSubnet, sameZone, remote), caller).instances(), contains(sameSubnet));
+        assertThat(orders.nearest(List.of(sameZone, remote), caller).instances(), contains(sameZone));
+        assertThat(orders.nearest(List.of(remote), caller), is(nullValue()));
+    }
+
+    @Test
+    void locality_normalizesLoopbackAndComputesSubnets() {
+        assertThat(Locality.ofAddress("127.0.0.1").host(), is("localhost"));
+        assertThat(Locality.ofAddress("::ffff:10.1.2.3").subnet(), is("10.1.2.0/24"));
+        assertThat(Locality.ofAddress("2001:db8:0:12::7").subnet(), is("2001:db8:0:12::/64"));
+        assertThat("Host names never resolve to a subnet", Locality.ofAddress("parser-host").subnet(), is(nullValue()));
+    }
+
+    private static CatalogInstance located(String serviceId, String host, String zone, String rack) {
+        return new CatalogInstance(serviceId, "orders", host, 9090, List.of(), List.of(),
+            Map.of(Locality.ZONE_KEY, zone, Locality.RACK_KEY, rack), "1.0.0", false);
+    }
+
+    private static CatalogInstance instance(String serviceId, List<String> tags, List<String> capabilities) {
+        List<String> rawTags = new ArrayList<>(tags);
+        capabilities.forEach(capability -> rawTags.add(CatalogInstance.CAPABILITY_PREFIX + capability));
+        return new CatalogInstance(serviceId, "parser", "10.0.0.1", 9090,
+            rawTags, capabilities, Map.of(), "1.0.0", false);
+    }
+}
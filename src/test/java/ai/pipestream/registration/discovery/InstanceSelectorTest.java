@@ -0,0 +1,121 @@
+package ai.pipestream.registration.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class InstanceSelectorTest {
+
+    private final List<CatalogInstance> candidates = List.of(
+        instance("orders-10-0-0-1-9090", Map.of()),
+        instance("orders-10-0-0-2-9090", Map.of()),
+        instance("orders-10-0-0-3-9090", Map.of()));
+
+    @Test
+    void roundRobin_cyclesThroughCandidates() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+
+        Set<String> picked = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            picked.add(selector.select("orders", candidates, ResolveOptions.defaults()).instance().serviceId());
+        }
+
+        assertThat("Each candidate should be picked once per rotation", picked, hasSize(candidates.size()));
+    }
+
+    @Test
+    void consistentHash_sameKeyPicksSameInstance() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+        ResolveOptions options = new ResolveOptions(LoadBalancingStrategy.CONSISTENT_HASH, "tenant-42");
+
+        String first = selector.select("orders", candidates, options).instance().serviceId();
+        for (int i = 0; i < 10; i++) {
+            assertThat("Same key should stick to one instance",
+                selector.select("orders", candidates, options).instance().serviceId(), is(first));
+        }
+    }
+
+    @Test
+    void consistentHash_withoutKeyFallsBackToRoundRobin() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+
+        InstanceSelector.Selection selection = selector.select("orders", candidates,
+            new ResolveOptions(LoadBalancingStrategy.CONSISTENT_HASH, null));
+
+        assertThat(selection.strategy(), is(LoadBalancingStrategy.ROUND_ROBIN));
+    }
+
+    @Test
+    void weighted_neverPicksZeroWeightInstances() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.WEIGHTED);
+        List<CatalogInstance> weighted = List.of(
+            instance("orders-10-0-0-1-9090", Map.of("weight", "0")),
+            instance("orders-10-0-0-2-9090", Map.of("weight", "5")));
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(selector.select("orders", weighted, ResolveOptions.defaults()).instance().serviceId(),
+                is("orders-10-0-0-2-9090"));
+        }
+    }
+
+    @Test
+    void effectiveStrategy_prefersRequestThenMetadataThenDefault() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+        List<CatalogInstance> declared = List.of(instance("orders-10-0-0-1-9090", Map.of("lb-strategy", "p2c")));
+
+        assertThat(selector.effectiveStrategy(declared, new ResolveOptions(LoadBalancingStrategy.RANDOM, null)),
+            is(LoadBalancingStrategy.RANDOM));
+        assertThat(selector.effectiveStrategy(declared, ResolveOptions.defaults()),
+            is(LoadBalancingStrategy.POWER_OF_TWO_CHOICES));
+        assertThat(selector.effectiveStrategy(candidates, ResolveOptions.defaults()),
+            is(LoadBalancingStrategy.ROUND_ROBIN));
+    }
+
+    @Test
+    void rank_roundRobinContinuesTheRotation() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+        InstanceSelector.Selection selection = selector.select("orders", candidates, ResolveOptions.defaults());
+
+        List<CatalogInstance> ranked = selector.rank("orders", selection.instance(), selection.strategy(),
+            candidates, ResolveOptions.defaults(), 5);
+
+        assertThat("Ranking is capped by the candidate count", ranked, hasSize(3));
+        assertThat(ranked.get(0), is(selection.instance()));
+        assertThat("Next failover is what the next resolve would pick",
+            ranked.get(1), is(selector.select("orders", candidates, ResolveOptions.defaults()).instance()));
+    }
+
+    @Test
+    void rank_consistentHashOrdersByRendezvousScore() {
+        InstanceSelector selector = selector(LoadBalancingStrategy.ROUND_ROBIN);
+        ResolveOptions options = new ResolveOptions(LoadBalancingStrategy.CONSISTENT_HASH, "tenant-42");
+        InstanceSelector.Selection selection = selector.select("orders", candidates, options);
+
+        List<CatalogInstance> ranked = selector.rank("orders", selection.instance(), selection.strategy(),
+            candidates, options, 2);
+
+        assertThat(ranked, hasSize(2));
+        assertThat(ranked.get(0), is(selection.instance()));
+        List<CatalogInstance> withoutFirst = candidates.stream().filter(c -> c != selection.instance()).toList();
+        assertThat("Runner-up should win once the first pick is gone",
+            ranked.get(1), is(selector.select("orders", withoutFirst, options).instance()));
+    }
+
+    private static InstanceSelector selector(LoadBalancingStrategy defaultStrategy) {
+        InstanceSelector selector = new InstanceSelector();
+        selector.defaultStrategy = defaultStrategy;
+        selector.maxCandidates = 10;
+        return selector;
+    }
+
+    private static CatalogInstance instance(String serviceId, Map<String, String> metadata) {
+        return new CatalogInstance(serviceId, "orders", "10.0.0.1", 9090,
+            List.of(), List.of(), metadata, "1.0.0", false);
+    }
+}
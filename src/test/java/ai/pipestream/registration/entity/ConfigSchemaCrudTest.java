@@ -102,4 +102,25 @@ class ConfigSchemaCrudTest {
                 afterDelete -> assertNull(afterDelete)
         );
     }
+
+    @Test
+    @RunOnVertxContext
+    void contentHash_matchesTheSchemaAsMySqlStoresIt(UniAsserter asserter) {
+        String sent = """
+        {
+          "type":"object",
+          "required":["port"],
+          "properties":{ "port":{"type":"integer"} }
+        }
+        """;
+        ConfigSchema schema = ConfigSchema.create("hash-check", "1.0.0", sent);
+        final String id = schema.schemaId;
+
+        asserter.execute(() -> Panache.withTransaction(schema::persist));
+        asserter.assertThat(
+                () -> Panache.withSession(() -> ConfigSchema.<ConfigSchema>findById(id)),
+                stored -> assertEquals(ConfigSchema.contentHash(sent), ConfigSchema.contentHash(stored.jsonSchema))
+        );
+        asserter.execute(() -> Panache.withTransaction(() -> ConfigSchema.deleteById(id)));
+    }
 }
\ No newline at end of file
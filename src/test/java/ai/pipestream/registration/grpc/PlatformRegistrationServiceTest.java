@@ -0,0 +1,126 @@
+package ai.pipestream.registration.grpc;
+
+import ai.pipestream.platform.registration.ServiceResolveRequest;
+import ai.pipestream.platform.registration.ServiceResolveResponse;
+import ai.pipestream.registration.discovery.CatalogFilterCache;
+import ai.pipestream.registration.discovery.ResolveOptions;
+import ai.pipestream.registration.handlers.ServiceDiscoveryHandler;
+import ai.pipestream.registration.handlers.ServiceDiscoveryHandler.Resolution;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PlatformRegistrationServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolveService_answersEveryBatchedNameFromOneLookup() throws Exception {
+        PlatformRegistrationService service = new PlatformRegistrationService();
+        service.discoveryHandler = mock(ServiceDiscoveryHandler.class);
+        service.filterCache = new CatalogFilterCache();
+        service.maxBatchHeaderBytes = 6144;
+        when(service.discoveryHandler.resolveServices(any(), any(ResolveOptions.class)))
+            .thenReturn(Uni.createFrom().item(List.of(
+                resolution("orders", true), resolution("billing", false), resolution("search", true))));
+
+        Metadata responseHeaders = new Metadata();
+        ServiceResolveRequest request = ServiceResolveRequest.newBuilder()
+            .setServiceName("orders")
+            .addRequiredTags("grpc")
+            .build();
+        ServiceResolveResponse response = Context.current()
+            .withValue(DiscoveryRequestHeaders.RESOLVE_BATCH_KEY, " billing, ,search")
+            .withValue(DiscoveryRequestHeaders.RESPONSE_HEADERS_KEY, responseHeaders)
+            .call(() -> service.resolveService(request))
+            .await().indefinitely();
+
+        ArgumentCaptor<List<ServiceResolveRequest>> requests = ArgumentCaptor.forClass(List.class);
+        verify(service.discoveryHandler).resolveServices(requests.capture(), any(ResolveOptions.class));
+        assertThat(requests.getValue().stream().map(ServiceResolveRequest::getServiceName).toList(),
+            contains("orders", "billing", "search"));
+        assertThat("Batched names keep the request's criteria",
+            requests.getValue().get(2).getRequiredTagsList(), contains("grpc"));
+
+        assertThat(response.getServiceName(), is("orders"));
+        List<ServiceResolveResponse> batched = new ArrayList<>();
+        for (byte[] bytes : responseHeaders.getAll(DiscoveryRequestHeaders.RESOLVED_BATCH)) {
+            batched.add(ServiceResolveResponse.parseFrom(bytes));
+        }
+        assertThat(batched.stream().map(ServiceResolveResponse::getServiceName).toList(), contains("billing", "search"));
+        assertThat(batched.get(0).getFound(), is(false));
+    }
+
+    @Test
+    void resolveService_failsResourceExhaustedRatherThanSendOversizedHeaders() {
+        PlatformRegistrationService service = new PlatformRegistrationService();
+        service.discoveryHandler = mock(ServiceDiscoveryHandler.class);
+        service.filterCache = new CatalogFilterCache();
+        service.maxBatchHeaderBytes = 6144;
+        List<String> names = IntStream.range(0, 30).mapToObj(i -> "service-" + i).toList();
+        List<Resolution> resolutions = new ArrayList<>();
+        resolutions.add(realisticResolution("orders"));
+        names.forEach(name -> resolutions.add(realisticResolution(name)));
+        when(service.discoveryHandler.resolveServices(any(), any(ResolveOptions.class)))
+            .thenReturn(Uni.createFrom().item(resolutions));
+
+        Metadata responseHeaders = new Metadata();
+        ServiceResolveRequest request = ServiceResolveRequest.newBuilder().setServiceName("orders").build();
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class, () -> Context.current()
+            .withValue(DiscoveryRequestHeaders.RESOLVE_BATCH_KEY, String.join(",", names))
+            .withValue(DiscoveryRequestHeaders.RESPONSE_HEADERS_KEY, responseHeaders)
+            .call(() -> service.resolveService(request))
+            .await().indefinitely());
+
+        assertThat(error.getStatus().getCode(), is(Status.Code.RESOURCE_EXHAUSTED));
+        assertThat("Nothing may be sent past the client's 8 KiB metadata limit",
+            responseHeaders.containsKey(DiscoveryRequestHeaders.RESOLVED_BATCH), is(false));
+    }
+
+    /**
+     * A found answer with the tags, capabilities and meta a module instance typically carries
+     */
+    private static Resolution realisticResolution(String serviceName) {
+        return new Resolution(ServiceResolveResponse.newBuilder()
+            .setServiceName(serviceName)
+            .setFound(true)
+            .setServiceId(serviceName + "-10-42-17-203-9090")
+            .setHost("10.42.17.203")
+            .setPort(9090)
+            .setTotalInstances(3)
+            .setHealthyInstances(3)
+            .setSelectionReason("Selected zone-local instance (2 of 3 nearby): round-robin")
+            .putMetadata("version", "1.14.2")
+            .putMetadata("module-name", serviceName)
+            .putMetadata("module-version", "1.14.2")
+            .putMetadata("display-name", "Document " + serviceName + " processor")
+            .putMetadata("description", "Extracts, normalizes and enriches documents for the " + serviceName + " pipeline step")
+            .putMetadata("json-config-schema-hash", "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+            .putMetadata("zone", "eu-west-1a")
+            .putMetadata("rack", "r12")
+            .putMetadata("lb-strategy", "ROUND_ROBIN")
+            .putMetadata("weight", "100")
+            .addCapabilities("PipeStepProcessor")
+            .build(), List.of());
+    }
+
+    private static Resolution resolution(String serviceName, boolean found) {
+        return new Resolution(ServiceResolveResponse.newBuilder()
+            .setServiceName(serviceName)
+            .setFound(found)
+            .build(), List.of());
+    }
+}
@@ -0,0 +1,47 @@
+package ai.pipestream.registration.handlers;
+
+import ai.pipestream.platform.registration.ModuleRegistrationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class RegistrationFingerprintTest {
+
+    @Test
+    void fingerprint_ignoresMetadataOrder() {
+        Map<String, String> forward = new LinkedHashMap<>();
+        forward.put("zone", "eu-1a");
+        forward.put("rack", "r1");
+        Map<String, String> reverse = new LinkedHashMap<>();
+        reverse.put("rack", "r1");
+        reverse.put("zone", "eu-1a");
+
+        assertThat(ModuleRegistrationHandler.registrationFingerprint(request("1.0.0", forward)),
+            is(ModuleRegistrationHandler.registrationFingerprint(request("1.0.0", reverse))));
+    }
+
+    @Test
+    void fingerprint_changesWithVersionAndMetadata() {
+        String original = ModuleRegistrationHandler.registrationFingerprint(request("1.0.0", Map.of("zone", "eu-1a")));
+
+        assertThat(original, matchesPattern("[0-9a-f]{64}"));
+        assertThat(ModuleRegistrationHandler.registrationFingerprint(request("1.0.1", Map.of("zone", "eu-1a"))),
+            is(not(original)));
+        assertThat(ModuleRegistrationHandler.registrationFingerprint(request("1.0.0", Map.of("zone", "eu-1b"))),
+            is(not(original)));
+    }
+
+    private static ModuleRegistrationRequest request(String version, Map<String, String> metadata) {
+        return ModuleRegistrationRequest.newBuilder()
+            .setModuleName("parser")
+            .setHost("10.0.0.1")
+            .setPort(9090)
+            .setVersion(version)
+            .putAllMetadata(metadata)
+            .build();
+    }
+}
@@ -0,0 +1,137 @@
+package ai.pipestream.registration.handlers;
+
+import ai.pipestream.platform.registration.RegistrationEvent;
+import ai.pipestream.registration.consul.ConsulRegistrar;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+class RegistrationGuardTest {
+
+    private static final String SERVICE_ID = "parser-10-0-0-1-9090";
+
+    @Test
+    void cancelBeforeDurable_rollsBackConsul() {
+        RegistrationGuard guard = guard();
+        RegistrationGuard.Progress progress = registered();
+
+        AssertSubscriber<RegistrationEvent> subscriber = guard.guard("module", SERVICE_ID, progress, Multi.createFrom().nothing())
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+        subscriber.cancel();
+
+        verify(guard.consulRegistrar).unregisterService(SERVICE_ID);
+        assertThat(abandoned(guard, "cancelled", "rolled_back"), is(1.0));
+    }
+
+    @Test
+    void cancelAfterDurable_leavesRegistrationInPlace() {
+        RegistrationGuard guard = guard();
+        RegistrationGuard.Progress progress = registered();
+        progress.durable();
+
+        guard.guard("module", SERVICE_ID, progress, Multi.createFrom().nothing())
+            .subscribe().withSubscriber(AssertSubscriber.create(10))
+            .cancel();
+
+        verify(guard.consulRegistrar, never()).unregisterService(any());
+        assertThat(abandoned(guard, "cancelled", "left_in_place"), is(1.0));
+    }
+
+    @Test
+    void deadline_rollsBackThenFailsWithDeadlineExceeded() throws Exception {
+        RegistrationGuard guard = guard();
+        RegistrationGuard.Progress progress = registered();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        AssertSubscriber<RegistrationEvent> subscriber;
+        try {
+            Multi<RegistrationEvent> guarded = Context.current()
+                .withDeadlineAfter(100, TimeUnit.MILLISECONDS, scheduler)
+                .call(() -> guard.guard("service", SERVICE_ID, progress, Multi.createFrom().nothing()));
+
+            subscriber = guarded.subscribe().withSubscriber(AssertSubscriber.create(10))
+                .awaitFailure(Duration.ofSeconds(5));
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        assertThat(Status.fromThrowable(subscriber.getFailure()).getCode(), is(Status.Code.DEADLINE_EXCEEDED));
+        verify(guard.consulRegistrar).unregisterService(SERVICE_ID);
+        assertThat(abandoned(guard, "deadline", "rolled_back"), is(1.0));
+    }
+
+    @Test
+    void rollback_waitsForTheRegisterCallInFlight() {
+        RegistrationGuard guard = guard();
+        RegistrationGuard.Progress progress = new RegistrationGuard.Progress();
+        AtomicReference<UniEmitter<? super Boolean>> consulAnswer = new AtomicReference<>();
+        Multi<RegistrationEvent> pipeline = progress.registerInConsul(() -> Uni.createFrom().emitter(consulAnswer::set))
+            .onItem().transformToMulti(registered -> Multi.createFrom().nothing());
+
+        guard.guard("module", SERVICE_ID, progress, pipeline)
+            .subscribe().withSubscriber(AssertSubscriber.create(10))
+            .cancel();
+        verify(guard.consulRegistrar, never()).unregisterService(any());
+
+        consulAnswer.get().complete(true);
+        verify(guard.consulRegistrar).unregisterService(SERVICE_ID);
+        assertThat(abandoned(guard, "cancelled", "rolled_back"), is(1.0));
+    }
+
+    @Test
+    void abandonReason_isTheLastCallersOwn() {
+        RegistrationGuard guard = guard();
+        RegistrationGuard.Progress progress = registered();
+        SharedEventStream<RegistrationEvent> events = new SharedEventStream<>(
+            guard.settleOnCancel("module", SERVICE_ID, progress, Multi.createFrom().nothing()), () -> { });
+        Deadline shortDeadline = Deadline.after(50, TimeUnit.MILLISECONDS);
+
+        AssertSubscriber<RegistrationEvent> patient = guard.withDeadline(null, progress, events.attach())
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+        guard.withDeadline(shortDeadline, progress, events.attach())
+            .subscribe().withSubscriber(AssertSubscriber.create(10))
+            .awaitFailure(Duration.ofSeconds(5));
+        verify(guard.consulRegistrar, never()).unregisterService(any());
+
+        patient.cancel();
+
+        assertThat(abandoned(guard, "cancelled", "rolled_back"), is(1.0));
+        assertThat(abandoned(guard, "deadline", "rolled_back"), is(0.0));
+    }
+
+    private static RegistrationGuard.Progress registered() {
+        RegistrationGuard.Progress progress = new RegistrationGuard.Progress();
+        progress.registerInConsul(() -> Uni.createFrom().item(true)).await().indefinitely();
+        return progress;
+    }
+
+    private static RegistrationGuard guard() {
+        RegistrationGuard guard = new RegistrationGuard();
+        guard.consulRegistrar = mock(ConsulRegistrar.class);
+        guard.meterRegistry = new SimpleMeterRegistry();
+        when(guard.consulRegistrar.unregisterService(any())).thenReturn(Uni.createFrom().item(true));
+        return guard;
+    }
+
+    private static double abandoned(RegistrationGuard guard, String reason, String outcome) {
+        var counter = guard.meterRegistry.find("pipeline.registration.abandoned")
+            .tags("reason", reason, "outcome", outcome)
+            .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,233 @@
+package ai.pipestream.registration.handlers;
+
+import ai.pipestream.platform.registration.ServiceDetails;
+import ai.pipestream.platform.registration.ServiceListResponse;
+import ai.pipestream.platform.registration.ServiceResolveRequest;
+import ai.pipestream.platform.registration.ServiceResolveResponse;
+import ai.pipestream.registration.discovery.ListPage;
+import ai.pipestream.registration.discovery.PageRequest;
+import ai.pipestream.registration.discovery.ResolveOptions;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.ext.consul.Check;
+import io.vertx.ext.consul.CheckList;
+import io.vertx.ext.consul.CheckStatus;
+import io.vertx.ext.consul.HealthState;
+import io.vertx.ext.consul.Service;
+import io.vertx.ext.consul.ServiceEntry;
+import io.vertx.ext.consul.ServiceEntryList;
+import io.vertx.ext.consul.ServiceList;
+import io.vertx.mutiny.ext.consul.ConsulClient;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+class ServiceDiscoveryHandlerTest {
+
+    @Inject
+    ServiceDiscoveryHandler discoveryHandler;
+
+    @InjectMock
+    ConsulClient consulClient;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(consulClient);
+        discoveryHandler.resetFallbackCatalog();
+    }
+
+    @Test
+    void resolveServices_looksUpEachServiceOnceAndAnswersInOrder() {
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("billing"), eq(true)))
+            .thenReturn(Uni.createFrom().item(new ServiceEntryList().setList(List.of())));
+
+        List<ServiceResolveResponse> responses = discoveryHandler.resolveServices(List.of(
+                request("orders"), request("billing"), request("orders")), ResolveOptions.defaults())
+            .await().indefinitely().stream().map(ServiceDiscoveryHandler.Resolution::response).toList();
+
+        assertThat("One response per request", responses, hasSize(3));
+        assertThat(responses.get(0).getFound(), is(true));
+        assertThat(responses.get(0).getServiceId(), is("orders-10-0-0-1-9090"));
+        assertThat("Service without instances should not be found", responses.get(1).getFound(), is(false));
+        assertThat(responses.get(2).getServiceName(), is("orders"));
+        verify(consulClient, times(1)).healthServiceNodes("orders", true);
+        verify(consulClient, times(1)).healthServiceNodes("billing", true);
+    }
+
+    @Test
+    void resolveServices_failedLookupOnlyAffectsItsOwnRequests() {
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("billing"), eq(true)))
+            .thenReturn(Uni.createFrom().failure(new RuntimeException("Consul unavailable")));
+
+        List<ServiceResolveResponse> responses = discoveryHandler.resolveServices(List.of(
+                request("orders"), request("billing")), ResolveOptions.defaults())
+            .await().indefinitely().stream().map(ServiceDiscoveryHandler.Resolution::response).toList();
+
+        assertThat(responses.get(0).getFound(), is(true));
+        assertThat(responses.get(1).getFound(), is(false));
+        assertThat(responses.get(1).getSelectionReason(), containsString("Consul unavailable"));
+    }
+
+    @Test
+    void listServicesAndModules_shareOneCatalogFetch() {
+        List<UniEmitter<? super ServiceList>> catalogCalls = new ArrayList<>();
+        when(consulClient.catalogServices()).thenReturn(Uni.createFrom().emitter(catalogCalls::add));
+        ServiceEntryList moduleEntries = entries("parser", "parser-10-0-0-1-9090", 9090);
+        moduleEntries.getList().get(0).getService().setTags(List.of("module"));
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("parser"), eq(true)))
+            .thenReturn(Uni.createFrom().item(moduleEntries));
+
+        var services = discoveryHandler.listServices().subscribeAsCompletionStage();
+        var modules = discoveryHandler.listModules().subscribeAsCompletionStage();
+        var servicesAgain = discoveryHandler.listServices().subscribeAsCompletionStage();
+        assertThat("Concurrent listings should share one catalog call", catalogCalls, hasSize(1));
+
+        catalogCalls.get(0).complete(new ServiceList().setList(List.of(
+            new Service().setName("orders"), new Service().setName("parser"))));
+
+        assertThat(services.join().getServicesList(), hasSize(1));
+        assertThat(services.join().getServices(0).getServiceName(), is("orders"));
+        assertThat("Callers of the same catalog should share one response",
+            servicesAgain.join(), is(sameInstance(services.join())));
+        assertThat(modules.join().getModulesList(), hasSize(1));
+        assertThat(modules.join().getModules(0).getModuleName(), is("parser"));
+        verify(consulClient, times(1)).healthServiceNodes("orders", true);
+        verify(consulClient, times(1)).healthServiceNodes("parser", true);
+    }
+
+    @Test
+    void listServices_servesLastGoodCatalogWhenConsulFails() {
+        when(consulClient.catalogServices())
+            .thenReturn(Uni.createFrom().item(new ServiceList().setList(List.of(new Service().setName("orders")))));
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        ServiceListResponse fresh = discoveryHandler.listServices().await().indefinitely();
+
+        when(consulClient.catalogServices())
+            .thenReturn(Uni.createFrom().failure(new RuntimeException("Consul unavailable")));
+        ServiceListResponse stale = discoveryHandler.listServices().await().indefinitely();
+
+        assertThat("Last good catalog should be served", stale.getServicesList(), hasSize(1));
+        assertThat("Stale answer should keep the time Consul last confirmed it",
+            stale.getAsOf(), is(fresh.getAsOf()));
+    }
+
+    @Test
+    void listServices_failedHealthReadServesLastGoodCatalogInsteadOfAPartialOne() {
+        when(consulClient.catalogServices()).thenReturn(Uni.createFrom().item(new ServiceList().setList(List.of(
+            new Service().setName("orders"), new Service().setName("billing")))));
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("billing"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("billing", "billing-10-0-0-2-9090", 9090)));
+        ServiceListResponse fresh = discoveryHandler.listServices().await().indefinitely();
+
+        when(consulClient.healthServiceNodes(eq("billing"), eq(true)))
+            .thenReturn(Uni.createFrom().failure(new RuntimeException("health read timed out")));
+        ServiceListResponse stale = discoveryHandler.listServices().await().indefinitely();
+
+        assertThat("No service may go missing because its health read failed",
+            stale.getServicesList().stream().map(ServiceDetails::getServiceName).toList(),
+            containsInAnyOrder("orders", "billing"));
+        assertThat("The partial fetch must not become the last good catalog",
+            stale.getAsOf(), is(fresh.getAsOf()));
+    }
+
+    @Test
+    void listServices_failsUnavailableWithoutAnyGoodCatalog() {
+        when(consulClient.catalogServices())
+            .thenReturn(Uni.createFrom().failure(new RuntimeException("Consul unavailable")));
+
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+            () -> discoveryHandler.listServices().await().indefinitely());
+
+        assertThat(error.getStatus().getCode(), is(Status.Code.UNAVAILABLE));
+    }
+
+    @Test
+    void listServicesPaged_walksCatalogWithCursor() {
+        when(consulClient.catalogServices()).thenReturn(Uni.createFrom().item(new ServiceList().setList(List.of(
+            new Service().setName("billing"), new Service().setName("orders"), new Service().setName("search")))));
+        when(consulClient.healthServiceNodes(eq("billing"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("billing", "billing-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("orders", "orders-10-0-0-1-9090", 9090)));
+        when(consulClient.healthServiceNodes(eq("search"), eq(true)))
+            .thenReturn(Uni.createFrom().item(entries("search", "search-10-0-0-1-9090", 9090)));
+
+        ListPage<ServiceListResponse> first = discoveryHandler.listServices(new PageRequest(2, null))
+            .await().indefinitely();
+        assertThat(first.response().getServicesList(), hasSize(2));
+        assertThat("Total should cover the whole catalog", first.response().getTotalCount(), is(3));
+        assertThat(first.nextCursor(), is(notNullValue()));
+
+        ListPage<ServiceListResponse> second = discoveryHandler.listServices(new PageRequest(2, first.nextCursor()))
+            .await().indefinitely();
+        assertThat(second.response().getServicesList(), hasSize(1));
+        assertThat(second.response().getServices(0).getServiceName(), is("search"));
+        assertThat("Last page should not carry a cursor", second.nextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void listServicesPaged_rejectsMalformedCursor() {
+        when(consulClient.catalogServices()).thenReturn(Uni.createFrom().item(new ServiceList().setList(List.of())));
+
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+            () -> discoveryHandler.listServices(new PageRequest(2, "not a cursor")).await().indefinitely());
+
+        assertThat(error.getStatus().getCode(), is(Status.Code.INVALID_ARGUMENT));
+    }
+
+    @Test
+    void getServiceById_findsInstancesWhoseHostContainsDashes() {
+        ServiceEntryList orders = entries("orders", "orders-ip-10-0-0-1-9090", 9090);
+        orders.getList().get(0).getService().setAddress("ip-10-0-0-1");
+        when(consulClient.healthState(HealthState.PASSING)).thenReturn(Uni.createFrom().item(new CheckList().setList(List.of(
+            new Check().setServiceId("orders-ip-10-0-0-1-9090").setServiceName("orders").setStatus(CheckStatus.PASSING)))));
+        when(consulClient.healthServiceNodes(eq("orders"), eq(true))).thenReturn(Uni.createFrom().item(orders));
+
+        ServiceDetails details = discoveryHandler.getServiceById("orders-ip-10-0-0-1-9090").await().indefinitely();
+        assertThat(details.getServiceName(), is("orders"));
+        assertThat(details.getHost(), is("ip-10-0-0-1"));
+
+        StatusRuntimeException missing = assertThrows(StatusRuntimeException.class,
+            () -> discoveryHandler.getServiceById("orders-unknown").await().indefinitely());
+        assertThat(missing.getStatus().getCode(), is(Status.Code.NOT_FOUND));
+        verify(consulClient, never()).catalogServices();
+        verify(consulClient, times(1)).healthServiceNodes("orders", true);
+    }
+
+    private static ServiceResolveRequest request(String serviceName) {
+        return ServiceResolveRequest.newBuilder().setServiceName(serviceName).build();
+    }
+
+    private static ServiceEntryList entries(String name, String id, int port) {
+        Service service = new Service()
+            .setName(name)
+            .setId(id)
+            .setAddress("10.0.0.1")
+            .setPort(port);
+        return new ServiceEntryList().setList(List.of(new ServiceEntry().setService(service)));
+    }
+}
@@ -0,0 +1,80 @@
+package ai.pipestream.registration.handlers;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SharedEventStreamTest {
+
+    @Test
+    void lateSubscribers_replayMissedEventsAndShareOneRun() {
+        AtomicInteger runs = new AtomicInteger();
+        List<MultiEmitter<? super String>> upstream = new ArrayList<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        SharedEventStream<String> stream = new SharedEventStream<>(
+            Multi.createFrom().emitter(emitter -> {
+                runs.incrementAndGet();
+                upstream.add(emitter);
+            }),
+            () -> finished.set(true));
+
+        AssertSubscriber<String> first = stream.attach().subscribe().withSubscriber(AssertSubscriber.create(10));
+        upstream.get(0).emit("STARTED").emit("CONSUL_REGISTERED");
+        AssertSubscriber<String> second = stream.attach().subscribe().withSubscriber(AssertSubscriber.create(10));
+        upstream.get(0).emit("COMPLETED").complete();
+
+        assertThat(runs.get(), is(1));
+        first.assertCompleted().assertItems("STARTED", "CONSUL_REGISTERED", "COMPLETED");
+        second.assertCompleted().assertItems("STARTED", "CONSUL_REGISTERED", "COMPLETED");
+        assertThat(finished.get(), is(true));
+    }
+
+    @Test
+    void lastSubscriberLeaving_cancelsTheRun() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        SharedEventStream<String> stream = new SharedEventStream<>(
+            Multi.createFrom().<String>nothing().onCancellation().invoke(() -> cancelled.set(true)),
+            () -> finished.set(true));
+
+        AssertSubscriber<String> first = stream.attach().subscribe().withSubscriber(AssertSubscriber.create(10));
+        AssertSubscriber<String> second = stream.attach().subscribe().withSubscriber(AssertSubscriber.create(10));
+
+        first.cancel();
+        assertThat("One caller leaving must not stop the others", cancelled.get(), is(false));
+        assertThat(stream.subscribers(), is(1));
+
+        second.cancel();
+        assertThat(cancelled.get(), is(true));
+        assertThat(finished.get(), is(true));
+    }
+
+    @Test
+    void cancel_stopsTheRunBeforeFailingItsSubscribers() {
+        List<String> order = new ArrayList<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        SharedEventStream<String> stream = new SharedEventStream<>(
+            Multi.createFrom().<String>nothing().onCancellation().invoke(() -> order.add("run cancelled")),
+            () -> finished.set(true));
+
+        AssertSubscriber<String> attached = stream.attach()
+            .onFailure().invoke(error -> order.add("subscriber failed"))
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+        stream.cancel(new IllegalStateException("superseded"));
+
+        assertThat(order, contains("run cancelled", "subscriber failed"));
+        attached.assertFailedWith(IllegalStateException.class, "superseded");
+        assertThat(finished.get(), is(true));
+        stream.attach().subscribe().withSubscriber(AssertSubscriber.create(10))
+            .assertFailedWith(IllegalStateException.class, "superseded");
+    }
+}
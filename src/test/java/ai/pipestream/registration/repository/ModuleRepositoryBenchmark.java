@@ -0,0 +1,95 @@
+package ai.pipestream.registration.repository;
+
+import ai.pipestream.registration.entity.ServiceModule;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Compares the upsert and find/merge persistence paths under concurrent registrations.
+ * Each round registers every module at once; the first round inserts, later rounds update.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class ModuleRepositoryBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(ModuleRepositoryBenchmark.class);
+    private static final int MODULES = 100;
+    private static final int ROUNDS = 5;
+    private static final String SCHEMA = "{\"type\":\"object\",\"properties\":{\"threshold\":{\"type\":\"number\"}}}";
+
+    @Inject
+    ModuleRepository repository;
+
+    @Inject
+    Vertx vertx;
+
+    private interface Registration {
+        Uni<ServiceModule> register(String serviceName, String host, int port, String version,
+                                    Map<String, Object> metadata, String jsonSchema, String fingerprint);
+    }
+
+    @Test
+    void upsert_versusFindAndMerge() {
+        // Warm up connections, statement caches and the JIT on both paths
+        run("warmup-merge", repository::findAndMergeModule, 1);
+        run("warmup-upsert", repository::upsertModule, 1);
+
+        Duration merge = run("bench-merge", repository::findAndMergeModule, ROUNDS);
+        Duration upsert = run("bench-upsert", repository::upsertModule, ROUNDS);
+
+        int registrations = MODULES * ROUNDS;
+        LOG.infof("find/merge: %d registrations in %d ms (%.0f/s)",
+            registrations, merge.toMillis(), registrations * 1000.0 / Math.max(1, merge.toMillis()));
+        LOG.infof("upsert:     %d registrations in %d ms (%.0f/s)",
+            registrations, upsert.toMillis(), registrations * 1000.0 / Math.max(1, upsert.toMillis()));
+
+        ServiceModule module = onNewContext(() -> repository.findById(
+            ServiceModule.generateServiceId("bench-upsert-0", "10.1.0.1", 9090)))
+            .await().atMost(Duration.ofSeconds(30));
+        assertThat(module.version, is("1." + (ROUNDS - 1) + ".0"));
+    }
+
+    private Duration run(String prefix, Registration registration, int rounds) {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            String version = "1." + round + ".0";
+            List<Uni<ServiceModule>> calls = new ArrayList<>();
+            for (int i = 0; i < MODULES; i++) {
+                String name = prefix + "-" + i;
+                String fingerprint = name + "@" + version;
+                calls.add(onNewContext(() -> registration.register(name, "10.1.0.1", 9090, version,
+                    Map.of("round", version), SCHEMA, fingerprint)));
+            }
+            List<ServiceModule> saved = Uni.join().all(calls).andFailFast().await().atMost(Duration.ofMinutes(2));
+            assertThat(saved, hasSize(MODULES));
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Each registration gets its own duplicated context, as concurrent gRPC calls would
+     */
+    private <T> Uni<T> onNewContext(Supplier<Uni<T>> call) {
+        Context context = VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext());
+        return Uni.createFrom().voidItem()
+            .emitOn(r -> context.runOnContext(x -> r.run()))
+            .chain(ignored -> call.get());
+    }
+}
@@ -0,0 +1,128 @@
+package ai.pipestream.registration.repository;
+
+import ai.pipestream.registration.entity.ConfigSchema;
+import ai.pipestream.registration.entity.ServiceModule;
+import ai.pipestream.registration.entity.ServiceStatus;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+import io.quarkus.test.vertx.UniAsserter;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.PreparedQuery;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+class ModuleRepositoryUpsertTest {
+
+    private static final String SCHEMA = "{\"type\":\"object\"}";
+
+    @Inject
+    ModuleRepository repository;
+
+    @Test
+    @RunOnVertxContext
+    void upsertModule_insertsThenUpdatesInPlace(UniAsserter asserter) {
+        String serviceId = ServiceModule.generateServiceId("upsert-parser", "10.0.0.9", 9090);
+        AtomicReference<LocalDateTime> registeredAt = new AtomicReference<>();
+
+        asserter.execute(() -> repository.upsertModule("upsert-parser", "10.0.0.9", 9090, "1.0.0",
+            Map.of("zone", "eu-1a"), SCHEMA, "fingerprint-1"));
+        asserter.assertThat(
+            () -> Panache.withSession(() -> ServiceModule.<ServiceModule>findById(serviceId)),
+            inserted -> {
+                assertNotNull(inserted, "Expected the upsert to insert the module");
+                assertEquals("1.0.0", inserted.version);
+                assertEquals("fingerprint-1", inserted.registrationFingerprint);
+                assertEquals(ConfigSchema.generateSchemaId("upsert-parser", "1.0.0"), inserted.configSchemaId);
+                assertEquals("eu-1a", inserted.metadata.get("zone"));
+                registeredAt.set(inserted.registeredAt);
+            }
+        );
+
+        asserter.execute(() -> repository.upsertModule("upsert-parser", "10.0.0.9", 9090, "1.1.0",
+            Map.of("zone", "eu-1b"), SCHEMA, "fingerprint-2"));
+        asserter.assertThat(
+            () -> Panache.withSession(() -> ServiceModule.<ServiceModule>findById(serviceId)),
+            updated -> {
+                assertEquals("1.1.0", updated.version);
+                assertEquals("fingerprint-2", updated.registrationFingerprint);
+                assertEquals("eu-1b", updated.metadata.get("zone"));
+                assertEquals(ServiceStatus.ACTIVE, updated.status);
+                assertEquals(registeredAt.get(), updated.registeredAt, "Update must keep the original registration time");
+            }
+        );
+        asserter.assertThat(
+            () -> Panache.withSession(() -> ConfigSchema.<ConfigSchema>findById(
+                ConfigSchema.generateSchemaId("upsert-parser", "1.1.0"))),
+            schema -> assertEquals(ConfigSchema.SyncStatus.PENDING, schema.syncStatus)
+        );
+    }
+
+    @Test
+    @RunOnVertxContext
+    void upsertModule_failedModuleWriteLeavesNoSchemaRow(UniAsserter asserter) {
+        // Longer than modules.host allows, so the module insert fails after the schema insert
+        String host = "h".repeat(300);
+
+        asserter.assertFailedWith(() -> repository.upsertModule("atomic-parser", host, 9090, "1.0.0",
+            Map.of(), SCHEMA, "fingerprint-1"), Throwable.class);
+        asserter.assertThat(
+            () -> Panache.withSession(() -> ConfigSchema.<ConfigSchema>findById(
+                ConfigSchema.generateSchemaId("atomic-parser", "1.0.0"))),
+            schema -> assertNull(schema, "The schema insert must roll back with the module insert")
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertModule_issuesBothStatementsBeforeEitherAnswers() {
+        SqlConnection connection = mock(SqlConnection.class);
+        PreparedQuery<RowSet<Row>> schemaQuery = mock(PreparedQuery.class);
+        PreparedQuery<RowSet<Row>> moduleQuery = mock(PreparedQuery.class);
+        when(connection.preparedQuery(startsWith("INSERT INTO config_schemas"))).thenReturn(schemaQuery);
+        when(connection.preparedQuery(startsWith("INSERT INTO modules"))).thenReturn(moduleQuery);
+
+        AtomicReference<UniEmitter<? super RowSet<Row>>> schemaAnswer = new AtomicReference<>();
+        AtomicBoolean moduleSent = new AtomicBoolean();
+        when(schemaQuery.execute(any())).thenReturn(Uni.createFrom().emitter(schemaAnswer::set));
+        when(moduleQuery.execute(any())).thenReturn(Uni.createFrom().emitter(emitter -> {
+            moduleSent.set(true);
+            emitter.complete(mock(RowSet.class));
+        }));
+
+        ModuleRepository unpooled = new ModuleRepository();
+        unpooled.mysqlPool = mock(Pool.class);
+        when(unpooled.mysqlPool.withTransaction(any(Function.class))).thenAnswer(invocation ->
+            ((Function<SqlConnection, Uni<Object>>) invocation.getArgument(0)).apply(connection));
+
+        UniAssertSubscriber<ServiceModule> result = unpooled.upsertModule("pipelined-parser", "10.0.0.9", 9090,
+                "1.0.0", Map.of(), SCHEMA, "fingerprint-1")
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        assertNotNull(schemaAnswer.get(), "Expected the schema upsert to be sent");
+        assertTrue(moduleSent.get(), "The module upsert must not wait for the schema upsert's answer");
+        result.assertNotTerminated();
+
+        schemaAnswer.get().complete(mock(RowSet.class));
+        assertEquals("1.0.0", result.assertCompleted().getItem().version);
+        verify(unpooled.mysqlPool, times(1)).withTransaction(any(Function.class));
+    }
+}
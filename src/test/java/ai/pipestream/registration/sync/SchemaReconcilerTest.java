@@ -0,0 +1,28 @@
+package ai.pipestream.registration.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SchemaReconcilerTest {
+
+    private static final Duration INITIAL = Duration.ofSeconds(30);
+    private static final Duration MAX = Duration.ofHours(6);
+
+    @Test
+    void jitteredBackoff_staysInTheUpperHalfOfEachExponentialStep() {
+        assertThat(SchemaReconciler.jitteredBackoff(1, INITIAL, MAX, 0.0), is(Duration.ofSeconds(15)));
+        assertThat(SchemaReconciler.jitteredBackoff(1, INITIAL, MAX, 0.999).toMillis(), lessThan(30_000L));
+        assertThat(SchemaReconciler.jitteredBackoff(3, INITIAL, MAX, 0.0), is(Duration.ofSeconds(60)));
+        assertThat(SchemaReconciler.jitteredBackoff(3, INITIAL, MAX, 0.999).toMillis(), lessThan(120_000L));
+    }
+
+    @Test
+    void jitteredBackoff_isCappedForLargeAttemptCounts() {
+        assertThat(SchemaReconciler.jitteredBackoff(40, INITIAL, MAX, 0.0), is(MAX.dividedBy(2)));
+        assertThat(SchemaReconciler.jitteredBackoff(40, INITIAL, MAX, 0.999), lessThanOrEqualTo(MAX));
+    }
+}
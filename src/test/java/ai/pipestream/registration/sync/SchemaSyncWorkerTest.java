@@ -0,0 +1,85 @@
+package ai.pipestream.registration.sync;
+
+import ai.pipestream.registration.entity.ConfigSchema;
+import ai.pipestream.registration.repository.ApicurioRegistryClient;
+import ai.pipestream.registration.repository.ModuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SchemaSyncWorkerTest {
+
+    private Vertx vertx;
+    private SchemaSyncWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        worker = new SchemaSyncWorker();
+        worker.moduleRepository = mock(ModuleRepository.class);
+        worker.apicurioClient = mock(ApicurioRegistryClient.class);
+        worker.vertx = vertx;
+        worker.meterRegistry = new SimpleMeterRegistry();
+        worker.enabled = true;
+        worker.batchSize = 20;
+        worker.interval = Duration.ofMinutes(5);
+        worker.maxAttempts = 1;
+        worker.initialBackoff = Duration.ofSeconds(1);
+        worker.maxBackoff = Duration.ofMinutes(5);
+        when(worker.moduleRepository.recordSyncResults(any())).thenReturn(Uni.createFrom().voidItem());
+        worker.onStart(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.onStop(null);
+        vertx.closeAndAwait();
+    }
+
+    @Test
+    void onSynced_getsTheArtifactIdOnlyOnceTheSchemaIsInApicurio() throws Exception {
+        ConfigSchema schema = ConfigSchema.create("parser", "1.0.0", "{\"type\":\"object\"}");
+        when(worker.moduleRepository.findSchemasByIds(any())).thenReturn(Uni.createFrom().item(List.of(schema)));
+        when(worker.apicurioClient.createOrUpdateSchema(anyString(), anyString(), anyString()))
+            .thenReturn(Uni.createFrom().item(new ApicurioRegistryClient.SchemaRegistrationResponse("parser-v1_0_0", 7L, "1.0.0")));
+
+        CompletableFuture<String> artifactId = new CompletableFuture<>();
+        worker.enqueue(schema.schemaId, artifactId::complete);
+
+        assertThat(artifactId.get(5, TimeUnit.SECONDS), is("parser-v1_0_0"));
+        verify(worker.moduleRepository, timeout(5_000)).recordSyncResults(any());
+    }
+
+    @Test
+    void onSynced_isNotCalledWhenTheSyncGivesUp() throws Exception {
+        ConfigSchema schema = ConfigSchema.create("parser", "2.0.0", "{\"type\":\"object\"}");
+        when(worker.moduleRepository.findSchemasByIds(any())).thenReturn(Uni.createFrom().item(List.of(schema)));
+        when(worker.apicurioClient.createOrUpdateSchema(anyString(), anyString(), anyString()))
+            .thenReturn(Uni.createFrom().failure(new IllegalStateException("registry down")));
+
+        CompletableFuture<String> artifactId = new CompletableFuture<>();
+        worker.enqueue(schema.schemaId, artifactId::complete);
+
+        verify(worker.moduleRepository, timeout(5_000)).recordSyncResults(any());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (worker.isQueued(schema.schemaId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(worker.isQueued(schema.schemaId), is(false));
+        assertThat(artifactId.isDone(), is(false));
+    }
+}